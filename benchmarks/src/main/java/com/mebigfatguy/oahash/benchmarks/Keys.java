@@ -0,0 +1,89 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash.benchmarks;
+
+/**
+ * builds the keys the benchmarks use. Each call with a different offset yields keys that are distinct from other
+ * offsets, so that keys at offset size can be used as misses.
+ */
+final class Keys {
+
+    private Keys() {
+    }
+
+    static Object[] create(String keyType, int count, int offset) {
+
+        Object[] keys = new Object[count];
+        for (int i = 0; i < count; i++) {
+            int id = offset + i;
+            switch (keyType) {
+                case "Integer":
+                    keys[i] = Integer.valueOf(id);
+                break;
+
+                case "String":
+                    keys[i] = "key-" + id;
+                break;
+
+                case "PoorHash":
+                    keys[i] = new PoorHashKey(id >>> 3, id & 7);
+                break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown key type " + keyType);
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * a composite key whose hash code just adds its parts. As created above, about 8 keys share each hash code and
+     * neighbouring hash codes are dense, whatever the size, so setup stays practical even at 10M keys.
+     */
+    static final class PoorHashKey {
+
+        private final int high;
+        private final int low;
+
+        PoorHashKey(int high, int low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public int hashCode() {
+            return high + low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PoorHashKey)) {
+                return false;
+            }
+
+            PoorHashKey that = (PoorHashKey) o;
+            return (high == that.high) && (low == that.low);
+        }
+
+        @Override
+        public String toString() {
+            return high + ":" + low;
+        }
+    }
+}
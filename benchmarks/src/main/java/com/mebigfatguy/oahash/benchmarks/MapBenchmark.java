@@ -0,0 +1,165 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mebigfatguy.oahash.OAHashMap;
+
+/**
+ * compares OAHashMap with HashMap. Point operations cycle through the keys; iterate, growFromEmpty and removeAll cover
+ * the whole map per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MapBenchmark {
+
+    @Param({ "OAHashMap", "HashMap" })
+    String impl;
+
+    @Param({ "10", "1000", "100000", "10000000" })
+    int size;
+
+    @Param({ "Integer", "String", "PoorHash" })
+    String keyType;
+
+    @Param({ "0.5", "0.7", "0.9" })
+    double loadFactor;
+
+    private Map<Object, Object> map;
+    private Object[] keys;
+    private Object[] missingKeys;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        keys = Keys.create(keyType, size, 0);
+        missingKeys = Keys.create(keyType, size, size);
+        map = newMap(size);
+        for (Object key : keys) {
+            map.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return map.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return map.get(missingKeys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object putExisting() {
+        Object key = keys[nextIndex()];
+        return map.put(key, key);
+    }
+
+    @Benchmark
+    public Object removeAndPut() {
+        Object key = keys[nextIndex()];
+        map.remove(key);
+        return map.put(key, key);
+    }
+
+    /**
+     * removes every key from a freshly filled copy, timing removals alone where removeAndPut pairs each with a put. The
+     * copy is made outside the measurement.
+     */
+    @Benchmark
+    public Map<Object, Object> removeAll(FilledCopy copy) {
+        for (Object key : keys) {
+            copy.map.remove(key);
+        }
+        return copy.map;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            bh.consume(entry.getKey());
+            bh.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public Map<Object, Object> growFromEmpty() {
+        Map<Object, Object> m = newMap(16);
+        for (Object key : keys) {
+            m.put(key, key);
+        }
+        return m;
+    }
+
+    private Map<Object, Object> newMap(int capacity) {
+        switch (impl) {
+            case "OAHashMap":
+                return new OAHashMap<>(capacity, loadFactor);
+
+            case "HashMap":
+                return new HashMap<>(capacity, (float) loadFactor);
+
+            default:
+                throw new IllegalArgumentException("Unknown map implementation " + impl);
+        }
+    }
+
+    private int nextIndex() {
+        if (++cursor >= keys.length) {
+            cursor = 0;
+        }
+        return cursor;
+    }
+
+    @State(Scope.Thread)
+    public static class FilledCopy {
+
+        Map<Object, Object> map;
+
+        @Setup(Level.Invocation)
+        public void setup(MapBenchmark benchmark) {
+            // put one at a time, as putAll may let an OAHashMap share the source table until its first write
+            map = benchmark.newMap(benchmark.size);
+            for (Object key : benchmark.keys) {
+                map.put(key, key);
+            }
+        }
+    }
+}
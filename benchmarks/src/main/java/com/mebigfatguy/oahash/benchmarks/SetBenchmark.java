@@ -0,0 +1,162 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mebigfatguy.oahash.OAHashSet;
+
+/**
+ * compares OAHashSet with HashSet. Point operations cycle through the elements; iterate, growFromEmpty and removeAll
+ * cover the whole set per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SetBenchmark {
+
+    @Param({ "OAHashSet", "HashSet" })
+    String impl;
+
+    @Param({ "10", "1000", "100000", "10000000" })
+    int size;
+
+    @Param({ "Integer", "String", "PoorHash" })
+    String keyType;
+
+    @Param({ "0.5", "0.7", "0.9" })
+    double loadFactor;
+
+    private Set<Object> set;
+    private Object[] elements;
+    private Object[] missingElements;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        elements = Keys.create(keyType, size, 0);
+        missingElements = Keys.create(keyType, size, size);
+        set = newSet(size);
+        for (Object element : elements) {
+            set.add(element);
+        }
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return set.contains(elements[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return set.contains(missingElements[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean addExisting() {
+        return set.add(elements[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean removeAndAdd() {
+        Object element = elements[nextIndex()];
+        set.remove(element);
+        return set.add(element);
+    }
+
+    /**
+     * removes every element from a freshly filled copy, timing removals alone where removeAndAdd pairs each with an add.
+     * The copy is made outside the measurement.
+     */
+    @Benchmark
+    public Set<Object> removeAll(FilledCopy copy) {
+        for (Object element : elements) {
+            copy.set.remove(element);
+        }
+        return copy.set;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Object element : set) {
+            bh.consume(element);
+        }
+    }
+
+    @Benchmark
+    public Set<Object> growFromEmpty() {
+        Set<Object> s = newSet(16);
+        for (Object element : elements) {
+            s.add(element);
+        }
+        return s;
+    }
+
+    private Set<Object> newSet(int capacity) {
+        switch (impl) {
+            case "OAHashSet":
+                return new OAHashSet<>(capacity, loadFactor);
+
+            case "HashSet":
+                return new HashSet<>(capacity, (float) loadFactor);
+
+            default:
+                throw new IllegalArgumentException("Unknown set implementation " + impl);
+        }
+    }
+
+    private int nextIndex() {
+        if (++cursor >= elements.length) {
+            cursor = 0;
+        }
+        return cursor;
+    }
+
+    @State(Scope.Thread)
+    public static class FilledCopy {
+
+        Set<Object> set;
+
+        @Setup(Level.Invocation)
+        public void setup(SetBenchmark benchmark) {
+            set = benchmark.newSet(benchmark.size);
+            for (Object element : benchmark.elements) {
+                set.add(element);
+            }
+        }
+    }
+}
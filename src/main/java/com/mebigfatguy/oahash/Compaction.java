@@ -0,0 +1,33 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+/**
+ * the rule the tables share for when a bulk removal rebuilds them. Probes only stop at empty slots, so they run past
+ * tombstones just as they do past live entries, and a table whose live and deleted slots together exceed the load
+ * factor's share probes as long as an overfull one.
+ */
+final class Compaction {
+
+    private Compaction() {
+    }
+
+    static boolean isNeeded(int liveSlots, int deletedSlots, int slotCount, double loadFactor) {
+        return (liveSlots + deletedSlots) > (slotCount * loadFactor);
+    }
+}
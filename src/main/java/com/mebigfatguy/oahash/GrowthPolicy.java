@@ -0,0 +1,55 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+/**
+ * decides how many slots a full table grows to. Whatever the policy returns, the table grows at least to the
+ * smallest capacity that holds the required number of items at the load factor.
+ */
+public interface GrowthPolicy {
+
+    /**
+     * grows by the load factor's share of the current capacity, but by at least 10 slots
+     */
+    GrowthPolicy DEFAULT = (capacity, requiredSize, loadFactor) -> Math.max((int) (capacity + (capacity * loadFactor)), capacity + 10);
+
+    /**
+     * grows to the next power of two at least twice the current capacity, trading memory for few resizes. Saturates at
+     * 1 << 30, the largest power of two an int holds.
+     */
+    GrowthPolicy DOUBLING = (capacity, requiredSize, loadFactor) -> Integer.highestOneBit((Math.min(Math.max(capacity, 10), 1 << 29) << 1) - 1) << 1;
+
+    /**
+     * grows by half the current capacity, but by at least 10 slots, trading more resizes for less slack than DEFAULT
+     */
+    GrowthPolicy ONE_AND_A_HALF = (capacity, requiredSize, loadFactor) -> capacity + Math.max(capacity >> 1, 10);
+
+    /**
+     * grows only to what the required items need, trading frequent resizes for the smallest table
+     */
+    GrowthPolicy EXACT = (capacity, requiredSize, loadFactor) -> exactCapacity(requiredSize, loadFactor);
+
+    /**
+     * returns the new number of slots for a table of capacity slots that must hold requiredSize items
+     */
+    int nextCapacity(int capacity, int requiredSize, double loadFactor);
+
+    static int exactCapacity(int requiredSize, double loadFactor) {
+        return (int) (requiredSize / loadFactor) + 1;
+    }
+}
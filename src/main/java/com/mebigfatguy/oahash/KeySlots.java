@@ -0,0 +1,102 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+/**
+ * the hashing and probing shared by the tables that keep each key at an even index of an Object array and its value
+ * at the next index, as OAHashMap does. Keeping them in one place means the seeded hashing and the switch to keyed
+ * hashing of colliding String keys apply to all of them alike.
+ */
+final class KeySlots {
+
+    static final Object DELETED = new Object() {
+        @Override
+        public String toString() {
+            return "ENTRY DELETED";
+        }
+    };
+
+    static final int FLOODING_PROBE_LENGTH = 128; // String keys added this far from their home slot switch to keyed hashing
+
+    private KeySlots() {
+    }
+
+    /**
+     * returns the hash of key under seed, or its SipHash under strongKeys once they are set and key is a String
+     */
+    static int hash(Object key, int seed, long[] strongKeys) {
+        if ((strongKeys != null) && (key instanceof String)) {
+            return KeyedHash.sipHash((String) key, strongKeys[0], strongKeys[1]);
+        }
+        return KeyedHash.mix(key.hashCode(), seed);
+    }
+
+    /**
+     * returns the key index a probe for a key with the given hash starts at, in a table of tableLength indices
+     */
+    static int homeIndex(int hash, int tableLength) {
+        return ((hash & Integer.MAX_VALUE) % (tableLength >> 1)) << 1;
+    }
+
+    /**
+     * returns the key index of key, probing from start, or -1 - the key index it would be inserted at. That is the
+     * first empty slot, or with reuseDeleted the first deleted slot on the way to it. Returns Integer.MIN_VALUE if key
+     * is absent and there is no slot to insert it at.
+     */
+    static int probe(Object[] table, int start, Object key, boolean reuseDeleted) {
+
+        int firstDeleted = -1;
+        int i = start;
+        do {
+            Object tableItem = table[i];
+            if (tableItem == null) {
+                return -1 - ((firstDeleted < 0) ? i : firstDeleted);
+            }
+
+            if (tableItem == DELETED) {
+                if (reuseDeleted && (firstDeleted < 0)) {
+                    firstDeleted = i;
+                }
+            } else if (key.equals(tableItem)) {
+                return i;
+            }
+
+            i += 2;
+            if (i == table.length) {
+                i = 0;
+            }
+        } while (i != start);
+
+        return (firstDeleted < 0) ? Integer.MIN_VALUE : (-1 - firstDeleted);
+    }
+
+    /**
+     * returns how many key slots a probe starting at start visits to reach index
+     */
+    static int probeLength(int index, int start, int tableLength) {
+        return ((((index - start) + tableLength) % tableLength) >> 1) + 1;
+    }
+
+    /**
+     * returns whether key, stored probeLength slots from its home slot by a table that does not hash keys with SipHash
+     * yet, suggests the keys were chosen to collide
+     */
+    static boolean isFlooding(Object key, int probeLength) {
+        return (key instanceof String) && (probeLength > FLOODING_PROBE_LENGTH);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * the hashing used to defend the tables against keys chosen to collide. Every table mixes a random seed into its
+ * hash codes, so that which slots keys land in can not be predicted from outside, and switches String keys to a
+ * SipHash keyed with random keys once keys with equal hash codes pile up.
+ */
+final class KeyedHash {
+
+    private KeyedHash() {
+    }
+
+    static int newSeed() {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    static long[] newKeys() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new long[] { random.nextLong(), random.nextLong() };
+    }
+
+    /**
+     * returns the hash code combined with seed, and scrambled so that every bit of both affects the low bits the slot
+     * is picked by
+     */
+    static int mix(int hashCode, int seed) {
+        int h = hashCode ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * returns SipHash-2-4 of the chars of s, taken as little endian 16 bit units, folded to an int
+     */
+    static int sipHash(String s, long k0, long k1) {
+
+        long v0 = k0 ^ 0x736f6d6570736575L;
+        long v1 = k1 ^ 0x646f72616e646f6dL;
+        long v2 = k0 ^ 0x6c7967656e657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+
+        int length = s.length();
+        int fullWords = length >> 2;
+        for (int w = 0; w <= fullWords; w++) {
+            long m;
+            int c = w << 2;
+            if (w < fullWords) {
+                m = s.charAt(c) | ((long) s.charAt(c + 1) << 16) | ((long) s.charAt(c + 2) << 32) | ((long) s.charAt(c + 3) << 48);
+            } else {
+                // the last word holds the remaining chars and the length in bytes
+                m = (long) (length << 1) << 56;
+                for (int shift = 0; c < length; c++, shift += 16) {
+                    m |= (long) s.charAt(c) << shift;
+                }
+            }
+
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13) ^ v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16) ^ v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21) ^ v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17) ^ v2;
+                v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        v2 ^= 0xff;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+
+        long h = v0 ^ v1 ^ v2 ^ v3;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.util.Arrays;
+
+/**
+ * a cache holding at most maxSize entries, in an OAHashMap style table. A hit only sets the entry's reference bit;
+ * when the cache is full, a clock hand sweeps the table clearing reference bits, and evicts the first entry whose bit
+ * was already clear, so recently used entries get a second chance. It is not thread safe, and as even get sets the
+ * reference bit and the hit counts, a cache shared between threads must be locked for reads as well as writes.
+ */
+public class OAClockCache<K, V> {
+
+    private static final Object DELETED = KeySlots.DELETED;
+
+    private static final double DEFAULT_LOAD_FACTOR = 0.70;
+
+    private final Object[] table; // even indices are the key, the following odd index is the value
+    private final boolean[] referenced; // by slot, whether the entry has been hit since the hand last passed it
+    private final int maxSize;
+    private final int maxUsedSlots; // live and deleted slots allowed before the table is rebuilt
+    private int size;
+    private int usedSlots; // live and deleted slots, which both lengthen probes
+    private int hand; // next slot the clock considers for eviction
+    private long hits;
+    private long misses;
+    private long evictions;
+    private final int hashSeed = KeyedHash.newSeed();
+    private long[] strongHashKeys; // SipHash keys for String keys, once probe lengths suggest the keys were chosen to collide
+
+    public OAClockCache(int maxSize) {
+        this(maxSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public OAClockCache(int maxSize, double loadFactor) {
+
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive but was " + maxSize);
+        }
+
+        if ((loadFactor <= 0) || (loadFactor >= 1)) {
+            throw new IllegalArgumentException("Load Factor must be between 0 and 1 exclusively, but was " + loadFactor);
+        }
+
+        this.maxSize = maxSize;
+        int capacity = GrowthPolicy.exactCapacity(maxSize, loadFactor);
+        table = new Object[capacity << 1];
+        referenced = new boolean[capacity];
+        // tombstones may fill half the slots left over by the load factor before a rebuild
+        maxUsedSlots = (int) (capacity * ((1 + loadFactor) / 2));
+    }
+
+    public V get(Object key) {
+
+        int foundIndex = find(key);
+        if (foundIndex < 0) {
+            ++misses;
+            return null;
+        }
+
+        ++hits;
+        referenced[foundIndex >> 1] = true;
+        return (V) table[foundIndex + 1];
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * adds or replaces the value for key, evicting an entry first if the cache is full and key is new
+     */
+    public V put(K key, V value) {
+
+        if (key == null) {
+            throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex >= 0) {
+            V oldValue = (V) table[foundIndex + 1];
+            table[foundIndex + 1] = value;
+            referenced[foundIndex >> 1] = true;
+            return oldValue;
+        }
+
+        if (size == maxSize) {
+            evict();
+            foundIndex = find(key);
+        }
+
+        if ((foundIndex == Integer.MIN_VALUE) || ((table[-1 - foundIndex] == null) && (usedSlots >= maxUsedSlots))) {
+            rebuild();
+            foundIndex = find(key);
+        }
+
+        int keyIndex = -1 - foundIndex;
+        if (table[keyIndex] == null) {
+            ++usedSlots;
+        }
+        table[keyIndex] = key;
+        table[keyIndex + 1] = value;
+        referenced[keyIndex >> 1] = false;
+        ++size;
+
+        if ((strongHashKeys == null) && KeySlots.isFlooding(key, KeySlots.probeLength(keyIndex, homeIndex(key), table.length))) {
+            strongHashKeys = KeyedHash.newKeys();
+            rebuild();
+        }
+        return null;
+    }
+
+    public V remove(Object key) {
+
+        int foundIndex = find(key);
+        if (foundIndex < 0) {
+            return null;
+        }
+
+        return removeAt(foundIndex);
+    }
+
+    public void clear() {
+        Arrays.fill(table, null);
+        Arrays.fill(referenced, false);
+        size = 0;
+        usedSlots = 0;
+        hand = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return (requests == 0) ? 1.0 : ((double) hits / requests);
+    }
+
+    public void resetCounts() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 16);
+        sb.append('{');
+
+        String separator = "";
+        for (int i = 0; i < table.length; i += 2) {
+            Object key = table[i];
+            if ((key != null) && (key != DELETED)) {
+                sb.append(separator).append(key).append('=').append(table[i + 1]);
+                separator = ", ";
+            }
+        }
+
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private int homeIndex(Object key) {
+        return KeySlots.homeIndex(KeySlots.hash(key, hashSeed, strongHashKeys), table.length);
+    }
+
+    /**
+     * returns the key index of key, or -1 - the key index it would be inserted at, which is the first deleted slot on
+     * the probe path, so that the slots freed by evictions are reused. Returns Integer.MIN_VALUE if key is absent and
+     * every slot is live.
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return Integer.MIN_VALUE;
+        }
+
+        return KeySlots.probe(table, homeIndex(key), key, true);
+    }
+
+    private void evict() {
+
+        int capacity = referenced.length;
+        for (;;) {
+            int slot = hand;
+            if (++hand == capacity) {
+                hand = 0;
+            }
+
+            Object key = table[slot << 1];
+            if ((key != null) && (key != DELETED)) {
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                } else {
+                    removeAt(slot << 1);
+                    ++evictions;
+                    return;
+                }
+            }
+        }
+    }
+
+    private V removeAt(int keyIndex) {
+
+        V value = (V) table[keyIndex + 1];
+        table[keyIndex] = DELETED;
+        table[keyIndex + 1] = null;
+        referenced[keyIndex >> 1] = false;
+        --size;
+        return value;
+    }
+
+    /**
+     * rehashes the live entries, with their reference bits, into the same table to clear out the tombstones left by
+     * evictions
+     */
+    private void rebuild() {
+
+        Object[] entries = new Object[size << 1];
+        boolean[] bits = new boolean[size];
+        int e = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            Object key = table[i];
+            if ((key != null) && (key != DELETED)) {
+                entries[e << 1] = key;
+                entries[(e << 1) + 1] = table[i + 1];
+                bits[e++] = referenced[i >> 1];
+            }
+        }
+
+        Arrays.fill(table, null);
+        usedSlots = 0;
+        hand = 0;
+        for (e = 0; e < bits.length; e++) {
+            int keyIndex = -1 - find(entries[e << 1]);
+            table[keyIndex] = entries[e << 1];
+            table[keyIndex + 1] = entries[(e << 1) + 1];
+            referenced[keyIndex >> 1] = bits[e];
+            ++usedSlots;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a thread safe map of keys to long counters. Adding to or reading a key that is already present is lock free and
+ * uses a striped LongAdder, so concurrent producers do not contend on a single counter. The map is not lock free
+ * while it grows: until the resizing thread publishes the new table, threads adding a new key, and threads looking
+ * up an absent key whose probe reaches a slot the resize has sealed, spin and yield.
+ */
+public class OAConcurrentCountingMap<K> {
+
+    private static final Object MOVED = new Object() {
+        @Override
+        public String toString() {
+            return "COUNTER MOVED";
+        }
+    };
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.70;
+    private static final int MIN_EXPANSION = 10;
+
+    private volatile AtomicReferenceArray<Object> table; // Counters, or MOVED once a slot has been sealed by a resize
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean resizing = new AtomicBoolean();
+    private final double loadFactor;
+    private final int hashSeed = KeyedHash.newSeed();
+
+    public OAConcurrentCountingMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OAConcurrentCountingMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public OAConcurrentCountingMap(int initialCapacity, double initialLoadFactor) {
+
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity can not be negative but was " + initialCapacity);
+        }
+
+        if ((initialLoadFactor <= 0) || (initialLoadFactor >= 1)) {
+            throw new IllegalArgumentException("Initial Load Factor must be between 0 and 1 exclusively, but was " + initialLoadFactor);
+        }
+
+        table = new AtomicReferenceArray<>(Math.max(initialCapacity, 1));
+        loadFactor = initialLoadFactor;
+    }
+
+    public void increment(K key) {
+        counterFor(key).increment();
+    }
+
+    public void decrement(K key) {
+        counterFor(key).decrement();
+    }
+
+    public void add(K key, long delta) {
+        counterFor(key).add(delta);
+    }
+
+    public long sum(Object key) {
+        Counter<K> counter = find(key);
+        return (counter == null) ? 0 : counter.sum();
+    }
+
+    public long sumThenReset(Object key) {
+        Counter<K> counter = find(key);
+        return (counter == null) ? 0 : counter.sumThenReset();
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * returns the current sums of all keys. Increments that race with the snapshot may or may not be included.
+     */
+    public OAHashMap<K, Long> snapshot() {
+        AtomicReferenceArray<Object> t = table;
+        OAHashMap<K, Long> snapshot = new OAHashMap<>((int) (size.get() / DEFAULT_LOAD_FACTOR) + 1);
+
+        for (int i = 0; i < t.length(); i++) {
+            Object o = t.get(i);
+            if ((o != null) && (o != MOVED)) {
+                Counter<K> counter = (Counter<K>) o;
+                snapshot.put(counter.key, Long.valueOf(counter.sum()));
+            }
+        }
+
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    private Counter<K> find(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        for (;;) {
+            AtomicReferenceArray<Object> t = table;
+            int length = t.length();
+            int start = homeIndex(key, length);
+            int i = start;
+            do {
+                Object o = t.get(i);
+                if (o == null) {
+                    return null;
+                }
+                if (o == MOVED) {
+                    break;
+                }
+                Counter<K> counter = (Counter<K>) o;
+                if (key.equals(counter.key)) {
+                    return counter;
+                }
+
+                if (++i == length) {
+                    i = 0;
+                }
+            } while (i != start);
+
+            awaitResize(t);
+        }
+    }
+
+    private Counter<K> counterFor(K key) {
+        if (key == null) {
+            throw new NullPointerException("counting of null key is not allowed");
+        }
+
+        Counter<K> created = null;
+        for (;;) {
+            AtomicReferenceArray<Object> t = table;
+            int length = t.length();
+            int start = homeIndex(key, length);
+            int i = start;
+            boolean sealed = false;
+            do {
+                Object o = t.get(i);
+                if (o == null) {
+                    if (created == null) {
+                        created = new Counter<>(key);
+                    }
+
+                    if (t.compareAndSet(i, null, created)) {
+                        if (size.incrementAndGet() > (length * loadFactor)) {
+                            resize(t);
+                        }
+                        return created;
+                    }
+                    o = t.get(i);
+                }
+
+                if (o == MOVED) {
+                    sealed = true;
+                    break;
+                }
+                Counter<K> counter = (Counter<K>) o;
+                if (key.equals(counter.key)) {
+                    return counter;
+                }
+
+                if (++i == length) {
+                    i = 0;
+                }
+            } while (i != start);
+
+            if (!sealed) {
+                resize(t);
+            }
+            awaitResize(t);
+        }
+    }
+
+    private int homeIndex(Object key, int length) {
+        return (KeyedHash.mix(key.hashCode(), hashSeed) & Integer.MAX_VALUE) % length;
+    }
+
+    private void awaitResize(AtomicReferenceArray<Object> t) {
+        while (table == t) {
+            Thread.yield();
+        }
+    }
+
+    private void resize(AtomicReferenceArray<Object> oldTable) {
+        if ((table != oldTable) || !resizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            if (table != oldTable) {
+                return;
+            }
+
+            int oldLength = oldTable.length();
+            int newLength = (int) (oldLength + (oldLength * loadFactor)) + MIN_EXPANSION;
+            AtomicReferenceArray<Object> newTable = new AtomicReferenceArray<>(newLength);
+
+            // seal each empty slot so that no new key can land in the old table after it has been copied
+            for (int i = 0; i < oldLength; i++) {
+                Object o = oldTable.get(i);
+                while ((o == null) && !oldTable.compareAndSet(i, null, MOVED)) {
+                    o = oldTable.get(i);
+                }
+
+                if (o != null) {
+                    Counter<K> counter = (Counter<K>) o;
+                    int j = homeIndex(counter.key, newLength);
+                    while (newTable.get(j) != null) {
+                        if (++j == newLength) {
+                            j = 0;
+                        }
+                    }
+                    newTable.set(j, counter);
+                }
+            }
+
+            table = newTable;
+        } finally {
+            resizing.set(false);
+        }
+    }
+
+    private static final class Counter<K> extends LongAdder {
+
+        private static final long serialVersionUID = 1L;
+
+        private final K key;
+
+        public Counter(K k) {
+            key = k;
+        }
+    }
+}
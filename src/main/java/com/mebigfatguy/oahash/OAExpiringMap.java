@@ -0,0 +1,327 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * a map whose entries expire a time to live after they were put, in an OAHashMap style table with the expiry times
+ * in a parallel long array. Lookups treat expired entries as absent and reclaim them; purgeExpired reclaims the rest
+ * a bounded number of slots at a time, so no background thread or expiry queue is needed.
+ */
+public class OAExpiringMap<K, V> {
+
+    private static final Object DELETED = KeySlots.DELETED;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.70;
+
+    private Object[] table; // even indices are the key, the following odd index is the value
+    private long[] expiries; // by slot, the clock time at which the entry expires
+    private int size; // entries not yet reclaimed, including expired ones
+    private int usedSlots; // live and deleted slots, which both lengthen probes
+    private int purgeIndex; // next slot purgeExpired looks at
+    private final long defaultTimeToLive;
+    private final LongSupplier clock;
+    private final int hashSeed = KeyedHash.newSeed();
+    private long[] strongHashKeys; // SipHash keys for String keys, once probe lengths suggest the keys were chosen to collide
+
+    public OAExpiringMap(long timeToLive, TimeUnit unit) {
+        this(timeToLive, unit, System::nanoTime);
+    }
+
+    /**
+     * uses nanoClock, which must count nanoseconds, as the time source; tests can supply a manually advanced one
+     */
+    public OAExpiringMap(long timeToLive, TimeUnit unit, LongSupplier nanoClock) {
+
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive but was " + timeToLive);
+        }
+
+        if (nanoClock == null) {
+            throw new NullPointerException("null clock is not allowed");
+        }
+
+        defaultTimeToLive = unit.toNanos(timeToLive);
+        clock = nanoClock;
+        table = new Object[DEFAULT_CAPACITY << 1];
+        expiries = new long[DEFAULT_CAPACITY];
+    }
+
+    public V get(Object key) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        if (isExpired(slot, clock.getAsLong())) {
+            removeSlot(slot);
+            return null;
+        }
+
+        return (V) table[(slot << 1) + 1];
+    }
+
+    /**
+     * returns whether key is held and has not expired. Like get, finding it expired reclaims it.
+     */
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * returns the remaining time to live of key in the given unit, or -1 if it is absent or expired
+     */
+    public long getTimeToLive(Object key, TimeUnit unit) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return -1;
+        }
+
+        long remaining = expiries[slot] - clock.getAsLong();
+        if (remaining <= 0) {
+            removeSlot(slot);
+            return -1;
+        }
+
+        return unit.convert(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    public V put(K key, V value) {
+        return putExpiringAt(key, value, clock.getAsLong() + defaultTimeToLive);
+    }
+
+    public V put(K key, V value, long timeToLive, TimeUnit unit) {
+
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive but was " + timeToLive);
+        }
+
+        return putExpiringAt(key, value, clock.getAsLong() + unit.toNanos(timeToLive));
+    }
+
+    public V remove(Object key) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        boolean expired = isExpired(slot, clock.getAsLong());
+        V value = removeSlot(slot);
+        return expired ? null : value;
+    }
+
+    /**
+     * examines at most budget slots, continuing where the previous call stopped, and reclaims the expired entries
+     * among them. Returns the number of entries reclaimed.
+     */
+    public int purgeExpired(int budget) {
+
+        long now = clock.getAsLong();
+        int capacity = expiries.length;
+        int purged = 0;
+        for (int i = Math.min(budget, capacity); i > 0; i--) {
+            int slot = purgeIndex;
+            if (++purgeIndex == capacity) {
+                purgeIndex = 0;
+            }
+
+            Object key = table[slot << 1];
+            if ((key != null) && (key != DELETED) && isExpired(slot, now)) {
+                removeSlot(slot);
+                ++purged;
+            }
+        }
+
+        return purged;
+    }
+
+    /**
+     * returns the number of entries held, which includes expired ones that have not been reclaimed yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns whether no entries are held. Like size, this counts expired entries that have not been reclaimed yet,
+     * so it can return false when every entry has expired.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        // the expiries of empty slots are never read, so they are left as they are
+        Arrays.fill(table, null);
+        size = 0;
+        usedSlots = 0;
+        purgeIndex = 0;
+    }
+
+    @Override
+    public String toString() {
+        long now = clock.getAsLong();
+        StringBuilder sb = new StringBuilder(size * 16);
+        sb.append('{');
+
+        String separator = "";
+        for (int slot = 0; slot < expiries.length; slot++) {
+            Object key = table[slot << 1];
+            if ((key != null) && (key != DELETED) && !isExpired(slot, now)) {
+                sb.append(separator).append(key).append('=').append(table[(slot << 1) + 1]);
+                separator = ", ";
+            }
+        }
+
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private V putExpiringAt(K key, V value, long expiry) {
+
+        if (key == null) {
+            throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
+        }
+
+        if (value == null) {
+            throw new NullPointerException("put of null value is not allowed {" + key + ", null)");
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            int valueIndex = (slot << 1) + 1;
+            V oldValue = isExpired(slot, clock.getAsLong()) ? null : (V) table[valueIndex];
+            table[valueIndex] = value;
+            expiries[slot] = expiry;
+            return oldValue;
+        }
+
+        if ((slot == Integer.MIN_VALUE) || ((table[(-1 - slot) << 1] == null) && ((usedSlots + 1) > (expiries.length * DEFAULT_LOAD_FACTOR)))) {
+            rehash(nextCapacity());
+            slot = find(key);
+        }
+
+        slot = -1 - slot;
+        int keyIndex = slot << 1;
+        if (table[keyIndex] == null) {
+            ++usedSlots;
+        }
+        table[keyIndex] = key;
+        table[keyIndex + 1] = value;
+        expiries[slot] = expiry;
+        ++size;
+
+        if ((strongHashKeys == null) && KeySlots.isFlooding(key, KeySlots.probeLength(keyIndex, homeIndex(key), table.length))) {
+            strongHashKeys = KeyedHash.newKeys();
+            rehash(expiries.length);
+        }
+        return null;
+    }
+
+    private boolean isExpired(int slot, long now) {
+        return (expiries[slot] - now) <= 0;
+    }
+
+    private int homeIndex(Object key) {
+        return KeySlots.homeIndex(KeySlots.hash(key, hashSeed, strongHashKeys), table.length);
+    }
+
+    /**
+     * returns the slot of key, or -1 - the slot it would be inserted at, which is the first deleted slot on the probe
+     * path, or Integer.MIN_VALUE if key is absent and every slot is live
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return Integer.MIN_VALUE;
+        }
+
+        int foundIndex = KeySlots.probe(table, homeIndex(key), key, true);
+        if (foundIndex >= 0) {
+            return foundIndex >> 1;
+        }
+
+        return (foundIndex == Integer.MIN_VALUE) ? Integer.MIN_VALUE : (-1 - ((-1 - foundIndex) >> 1));
+    }
+
+    private V removeSlot(int slot) {
+
+        int keyIndex = slot << 1;
+        V value = (V) table[keyIndex + 1];
+        table[keyIndex] = DELETED;
+        table[keyIndex + 1] = null;
+        --size;
+        return value;
+    }
+
+    /**
+     * returns the capacity to rebuild a full table at, which is its current one if the entries that have not expired
+     * fill at most half of it
+     */
+    private int nextCapacity() {
+
+        long now = clock.getAsLong();
+        int live = 0;
+        for (int slot = 0; slot < expiries.length; slot++) {
+            Object key = table[slot << 1];
+            if ((key != null) && (key != DELETED) && !isExpired(slot, now)) {
+                ++live;
+            }
+        }
+
+        int capacity = expiries.length;
+        if ((live + 1) <= ((capacity * DEFAULT_LOAD_FACTOR) / 2)) {
+            return capacity;
+        }
+
+        return Math.max(GrowthPolicy.DEFAULT.nextCapacity(capacity, live + 1, DEFAULT_LOAD_FACTOR), GrowthPolicy.exactCapacity(live + 1, DEFAULT_LOAD_FACTOR));
+    }
+
+    /**
+     * rebuilds the table at newCapacity without tombstones or expired entries
+     */
+    private void rehash(int newCapacity) {
+
+        long now = clock.getAsLong();
+        Object[] oldTable = table;
+        long[] oldExpiries = expiries;
+        table = new Object[newCapacity << 1];
+        expiries = new long[newCapacity];
+        size = 0;
+        usedSlots = 0;
+        purgeIndex = 0;
+
+        for (int oldSlot = 0; oldSlot < oldExpiries.length; oldSlot++) {
+            Object key = oldTable[oldSlot << 1];
+            if ((key != null) && (key != DELETED) && ((oldExpiries[oldSlot] - now) > 0)) {
+                int slot = -1 - find(key);
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = oldTable[(oldSlot << 1) + 1];
+                expiries[slot] = oldExpiries[oldSlot];
+                ++size;
+                ++usedSlots;
+            }
+        }
+    }
+}
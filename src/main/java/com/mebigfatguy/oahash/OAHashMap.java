@@ -20,33 +20,65 @@ package com.mebigfatguy.oahash;
 import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.management.ObjectName;
 
 public class OAHashMap<K, V> implements Map<K, V> {
 
-    private static final Object DELETED = new Object() {
-        @Override
-        public String toString() {
-            return "MAP ENTRY DELETED";
-        }
-    };
+    private static final Object DELETED = KeySlots.DELETED;
 
+    private static final Object[] EMPTY_TABLE = {}; // shared by all maps until their first put
     private static final int DEFAULT_CAPACITY = 16;
+    private static final int TINY_CAPACITY = 8; // tables of at most this many slots are filled and scanned from the start, without hashing
     private static final double DEFAULT_LOAD_FACTOR = 0.70;
     private static final int MIN_EXPANSION = 20; // 10 slots
+    private static final int LOOKUP_BATCH = 8; // probes kept in flight by the batched lookups
+    private static final int INCREMENTAL_RESIZE_MIN_LENGTH = 1 << 15; // smaller tables are rehashed in one go
+    private static final int MIGRATION_SLOTS = 32; // old table key slots moved per write during an incremental resize
+    private static final int CLEAR_REALLOCATION_MIN_LENGTH = 1 << 11; // smaller tables are always cleared in place
 
     private Object[] table; // odd indices are the key, even indices are the values
     private int size;
     private double loadFactor;
     private int revision;
+    private int peakSize; // largest size since the last clear, as of the last removal
+    private int deletedCount; // tombstones in table
+    private boolean shared; // table is also referenced by a snapshot, and must be copied before writing
+    private boolean incrementalResize;
+    private Object[] oldTable; // during an incremental resize, the table whose entries have not all moved yet
+    private int migrationIndex; // next key slot of oldTable to move
+    private boolean flyweightEntries;
+    private boolean hashCodeTracked;
+    private boolean hashCodeStale; // set by bulk operations that don't maintain trackedHashCode
+    private int trackedHashCode;
+    private double lowWaterMark; // fraction of the slots below which removals shrink the table, 0 to never shrink
+    private GrowthPolicy growthPolicy = GrowthPolicy.DEFAULT;
+    private long resizeCount;
+    private long lastResizeNanos;
+    private int hashSeed = KeyedHash.newSeed();
+    private long[] strongHashKeys; // SipHash keys for String keys, once probe lengths suggest the keys were chosen to collide
+    private Set<K> keySet;
+    private Collection<V> values;
+    private Set<Map.Entry<K, V>> entrySet;
 
     public OAHashMap() {
-        this(DEFAULT_CAPACITY);
+        this(0);
     }
 
     public OAHashMap(int initialCapacity) {
@@ -63,22 +95,71 @@ public class OAHashMap<K, V> implements Map<K, V> {
             throw new IllegalArgumentException("Initial Load Factor must be between 0 and 1 exclusively, but was " + initialLoadFactor);
         }
 
-        table = new Object[initialCapacity * 2];
+        table = (initialCapacity == 0) ? EMPTY_TABLE : new Object[initialCapacity * 2];
         loadFactor = initialLoadFactor;
     }
 
     public OAHashMap(Map<K, V> source) {
-        this((source == null) ? DEFAULT_CAPACITY : (int) (source.size() / DEFAULT_LOAD_FACTOR));
+        this((source == null) ? DEFAULT_CAPACITY : (source instanceof OAHashMap) ? 0 : (int) (source.size() / DEFAULT_LOAD_FACTOR));
 
         if (source == null) {
             return;
         }
 
+        if (source instanceof OAHashMap) {
+            OAHashMap<K, V> that = (OAHashMap<K, V>) source;
+            table = that.table.clone();
+            if (that.oldTable != null) {
+                oldTable = that.oldTable.clone();
+                migrationIndex = that.migrationIndex;
+            }
+            size = that.size;
+            deletedCount = that.deletedCount;
+            loadFactor = that.loadFactor;
+            growthPolicy = that.growthPolicy;
+            hashSeed = that.hashSeed;
+            strongHashKeys = that.strongHashKeys;
+            return;
+        }
+
         for (Map.Entry<K, V> entry : source.entrySet()) {
             putInternal(entry.getKey(), entry.getValue());
         }
     }
 
+    /**
+     * returns a map sized so that expectedSize entries can be added without growing the table
+     */
+    public static <K, V> OAHashMap<K, V> withExpectedSize(int expectedSize) {
+
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can not be negative but was " + expectedSize);
+        }
+
+        return new OAHashMap<>(GrowthPolicy.exactCapacity(expectedSize, DEFAULT_LOAD_FACTOR));
+    }
+
+    private OAHashMap(Object[] sharedTable, Object[] sharedOldTable, int sharedMigrationIndex, int sharedSize, double sharedLoadFactor,
+            int sharedHashSeed, long[] sharedStrongHashKeys) {
+        table = sharedTable;
+        oldTable = sharedOldTable;
+        migrationIndex = sharedMigrationIndex;
+        size = sharedSize;
+        loadFactor = sharedLoadFactor;
+        hashSeed = sharedHashSeed;
+        strongHashKeys = sharedStrongHashKeys;
+        shared = true;
+    }
+
+    /**
+     * returns an unmodifiable view of the map as it is now, in constant time. The table is only copied on the next
+     * write to this map. Call from the writing thread; the snapshot itself may be read from any thread.
+     */
+    public Map<K, V> snapshot() {
+        shared = true;
+        return Collections.unmodifiableMap(new OAHashMap<K, V>(table, oldTable, migrationIndex, size, loadFactor, hashSeed, strongHashKeys));
+    }
+
     @Override
     public boolean equals(Object o) {
 
@@ -91,6 +172,10 @@ public class OAHashMap<K, V> implements Map<K, V> {
             return false;
         }
 
+        if (o instanceof OAHashMap) {
+            return equalsTable((OAHashMap<?, ?>) o);
+        }
+
         for (Map.Entry<K, V> entry : that.entrySet()) {
             K k = entry.getKey();
             if (k == null) {
@@ -107,257 +192,1227 @@ public class OAHashMap<K, V> implements Map<K, V> {
             }
         }
 
-        return true;
+        return true;
+
+    }
+
+    private boolean equalsTable(OAHashMap<?, ?> that) {
+
+        if (hashCodeTracked && that.hashCodeTracked && (hashCode() != that.hashCode())) {
+            return false;
+        }
+
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object key = walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                int foundIndex = that.lookup(key);
+                if ((foundIndex < 0) || !Objects.equals(walkSlot(i + 1), that.walkSlot(foundIndex + 1))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * when set, the map maintains its hash code as entries are added, replaced and removed, so that hashCode is
+     * constant time. Useful for maps that are themselves used as keys.
+     */
+    public void setTrackHashCode(boolean track) {
+        hashCodeTracked = track;
+        hashCodeStale = true;
+    }
+
+    public boolean isTrackHashCode() {
+        return hashCodeTracked;
+    }
+
+    @Override
+    public int hashCode() {
+
+        if (hashCodeTracked) {
+            if (hashCodeStale) {
+                trackedHashCode = computeHashCode();
+                hashCodeStale = false;
+            }
+            return trackedHashCode;
+        }
+
+        return computeHashCode();
+    }
+
+    private int computeHashCode() {
+        int hashCode = 0;
+
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            K key = (K) walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                V value = (V) walkSlot(i + 1);
+
+                hashCode += Objects.hashCode(key) ^ Objects.hashCode(value);
+            }
+        }
+
+        return hashCode;
+
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        int foundIndex = lookup(key);
+        return foundIndex >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+
+        if (size == 0) {
+            return false;
+        }
+
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object tableItem = walkSlot(i);
+            if ((tableItem != null) && (tableItem != DELETED)) {
+                tableItem = walkSlot(i + 1);
+
+                if (value == null) {
+                    if (tableItem == null) {
+                        return true;
+                    }
+                } else if (value.equals(tableItem)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+
+        int foundIndex = lookup(key);
+
+        if (foundIndex < 0) {
+            return null;
+        }
+
+        return (V) walkSlot(foundIndex + 1);
+    }
+
+    /**
+     * looks up each of keys, storing the value in the same position of out, or null if the key is not present.
+     *
+     * @return the number of keys found
+     */
+    public int getAll(K[] keys, V[] out) {
+
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output array length " + out.length + " is shorter than key array length " + keys.length);
+        }
+
+        int[] foundIndices = new int[LOOKUP_BATCH];
+        int[] startIndices = new int[LOOKUP_BATCH];
+        int found = 0;
+        for (int from = 0; from < keys.length; from += LOOKUP_BATCH) {
+            int count = Math.min(LOOKUP_BATCH, keys.length - from);
+            findAll(keys, from, count, foundIndices, startIndices);
+            for (int k = 0; k < count; k++) {
+                int foundIndex = foundIndices[k];
+                if (foundIndex >= 0) {
+                    out[from + k] = (V) walkSlot(foundIndex + 1);
+                    ++found;
+                } else {
+                    out[from + k] = null;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    public boolean containsAll(Object[] keys) {
+
+        int[] foundIndices = new int[LOOKUP_BATCH];
+        int[] startIndices = new int[LOOKUP_BATCH];
+        for (int from = 0; from < keys.length; from += LOOKUP_BATCH) {
+            int count = Math.min(LOOKUP_BATCH, keys.length - from);
+            findAll(keys, from, count, foundIndices, startIndices);
+            for (int k = 0; k < count; k++) {
+                if (foundIndices[k] < 0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+
+        int foundIndex = lookup(key);
+
+        if (foundIndex < 0) {
+            return defaultValue;
+        }
+
+        return (V) walkSlot(foundIndex + 1);
+    }
+
+    @Override
+    public V put(K key, V value) {
+
+        if (key == null) {
+            throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex >= 0) {
+            return setValueAt(foundIndex, value);
+        }
+
+        ++revision;
+        insertAt(foundIndex, key, value);
+        return null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+
+        if (key == null) {
+            throw new NullPointerException("putIfAbsent of null key is not allowed {null, " + value + ")");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex >= 0) {
+            V oldValue = (V) table[foundIndex + 1];
+            if (oldValue == null) {
+                setValueAt(foundIndex, value);
+            }
+
+            return oldValue;
+        }
+
+        ++revision;
+        insertAt(foundIndex, key, value);
+        return null;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+
+        int foundIndex = find(key);
+        if (foundIndex < 0) {
+            return null;
+        }
+
+        return setValueAt(foundIndex, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+
+        int foundIndex = find(key);
+        if ((foundIndex < 0) || !Objects.equals(table[foundIndex + 1], oldValue)) {
+            return false;
+        }
+
+        setValueAt(foundIndex, newValue);
+        return true;
+    }
+
+    @Override
+    public V remove(Object key) {
+
+        int foundIndex = find(key);
+
+        if (foundIndex < 0) {
+            return null;
+        }
+
+        ++revision;
+        V value = removeAt(foundIndex);
+        shrinkIfNeeded();
+        return value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+
+        int foundIndex = find(key);
+
+        if ((foundIndex < 0) || !Objects.equals(table[foundIndex + 1], value)) {
+            return false;
+        }
+
+        ++revision;
+        removeAt(foundIndex);
+        shrinkIfNeeded();
+        return true;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        ++revision;
+
+        if (m.isEmpty()) {
+            return;
+        }
+
+        if (m instanceof OAHashMap) {
+            putAllFrom((OAHashMap<? extends K, ? extends V>) m);
+            return;
+        }
+
+        resizeIfNeeded(m.size());
+
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void putAllFrom(OAHashMap<? extends K, ? extends V> that) {
+
+        if (that == this) {
+            return;
+        }
+
+        finishResize();
+
+        Object[] thatTable = that.table;
+        // only adopt the other table when that neither shrinks this one nor takes on a differently configured layout
+        if ((size == 0) && (that.oldTable == null) && (thatTable.length >= table.length) && (that.loadFactor == loadFactor)
+                && (that.growthPolicy == growthPolicy)) {
+            table = thatTable.clone();
+            size = that.size;
+            deletedCount = that.deletedCount;
+            hashSeed = that.hashSeed;
+            strongHashKeys = that.strongHashKeys;
+            shared = false;
+            hashCodeStale = true;
+            return;
+        }
+
+        resizeIfNeeded(that.size);
+
+        int end = that.walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object key = that.walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                int foundIndex = find(key);
+                if (foundIndex >= 0) {
+                    setValueAt(foundIndex, (V) that.walkSlot(i + 1));
+                } else {
+                    insertAt(foundIndex, (K) key, (V) that.walkSlot(i + 1));
+                }
+            }
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+
+        if (key == null) {
+            throw new NullPointerException("computeIfAbsent of null key is not allowed");
+        }
+        if (mappingFunction == null) {
+            throw new NullPointerException("computeIfAbsent of null mapping function is not allowed");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex >= 0) {
+            V oldValue = (V) table[foundIndex + 1];
+            if (oldValue != null) {
+                return oldValue;
+            }
+        }
+
+        int expectedRevision = revision;
+        V newValue = mappingFunction.apply(key);
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        if (newValue == null) {
+            return null;
+        }
+
+        if (foundIndex >= 0) {
+            setValueAt(foundIndex, newValue);
+        } else {
+            ++revision;
+            insertAt(foundIndex, key, newValue);
+        }
+
+        return newValue;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+
+        if (remappingFunction == null) {
+            throw new NullPointerException("computeIfPresent of null remapping function is not allowed");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex < 0) {
+            return null;
+        }
+
+        V oldValue = (V) table[foundIndex + 1];
+        if (oldValue == null) {
+            return null;
+        }
+
+        int expectedRevision = revision;
+        V newValue = remappingFunction.apply(key, oldValue);
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        if (newValue == null) {
+            ++revision;
+            removeAt(foundIndex);
+            shrinkIfNeeded();
+        } else {
+            setValueAt(foundIndex, newValue);
+        }
+
+        return newValue;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+
+        if (key == null) {
+            throw new NullPointerException("compute of null key is not allowed");
+        }
+        if (remappingFunction == null) {
+            throw new NullPointerException("compute of null remapping function is not allowed");
+        }
+
+        int foundIndex = find(key);
+        V oldValue = (foundIndex >= 0) ? (V) table[foundIndex + 1] : null;
+
+        int expectedRevision = revision;
+        V newValue = remappingFunction.apply(key, oldValue);
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        if (newValue == null) {
+            if (foundIndex >= 0) {
+                ++revision;
+                removeAt(foundIndex);
+                shrinkIfNeeded();
+            }
+        } else if (foundIndex >= 0) {
+            setValueAt(foundIndex, newValue);
+        } else {
+            ++revision;
+            insertAt(foundIndex, key, newValue);
+        }
+
+        return newValue;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+
+        if (key == null) {
+            throw new NullPointerException("merge of null key is not allowed {null, " + value + ")");
+        }
+        if (value == null) {
+            throw new NullPointerException("merge of null value is not allowed {" + key + ", null)");
+        }
+        if (remappingFunction == null) {
+            throw new NullPointerException("merge of null remapping function is not allowed");
+        }
+
+        int foundIndex = find(key);
+        if (foundIndex < 0) {
+            ++revision;
+            insertAt(foundIndex, key, value);
+            return value;
+        }
+
+        V oldValue = (V) table[foundIndex + 1];
+        V newValue;
+        if (oldValue == null) {
+            newValue = value;
+        } else {
+            int expectedRevision = revision;
+            newValue = remappingFunction.apply(oldValue, value);
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        if (newValue == null) {
+            ++revision;
+            removeAt(foundIndex);
+            shrinkIfNeeded();
+        } else {
+            setValueAt(foundIndex, newValue);
+        }
+
+        return newValue;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+
+        if (action == null) {
+            throw new NullPointerException("forEach of null action is not allowed");
+        }
+
+        int expectedRevision = revision;
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object key = walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                action.accept((K) key, (V) walkSlot(i + 1));
+            }
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+
+        finishResize();
+        if (function == null) {
+            throw new NullPointerException("replaceAll of null function is not allowed");
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        copyOnWrite();
+        hashCodeStale = true;
+        int expectedRevision = revision;
+        Object[] t = table;
+        for (int i = 0; i < t.length; i += 2) {
+            Object key = t[i];
+            if ((key != null) && (key != DELETED)) {
+                t[i + 1] = function.apply((K) key, (V) t[i + 1]);
+            }
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+
+        if (action == null) {
+            throw new NullPointerException("forEach of null action is not allowed");
+        }
+
+        int expectedRevision = revision;
+        int leafSlots = leafSlots(parallelismThreshold);
+        for (Object[] t : walkTables()) {
+            new OAHashMapForEachTask(t, 0, t.length, leafSlots, action).invoke();
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+
+        if (searchFunction == null) {
+            throw new NullPointerException("search of null search function is not allowed");
+        }
+
+        int expectedRevision = revision;
+        int leafSlots = leafSlots(parallelismThreshold);
+        AtomicReference<U> result = new AtomicReference<>();
+        for (Object[] t : walkTables()) {
+            if (result.get() == null) {
+                new OAHashMapSearchTask<>(t, 0, t.length, leafSlots, searchFunction, result).invoke();
+            }
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        return result.get();
+    }
+
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException("reduce of null transformer or reducer is not allowed");
+        }
+
+        int expectedRevision = revision;
+        int leafSlots = leafSlots(parallelismThreshold);
+        U result = null;
+        for (Object[] t : walkTables()) {
+            OAHashMapReduceTask<U> task = new OAHashMapReduceTask<>(t, 0, t.length, leafSlots, transformer, reducer);
+            result = task.combine(result, task.invoke());
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        return result;
+    }
+
+    public K reduceKeys(long parallelismThreshold, BiFunction<? super K, ? super K, ? extends K> reducer) {
+
+        return reduce(parallelismThreshold, (k, v) -> k, reducer);
+    }
+
+    public V reduceValues(long parallelismThreshold, BiFunction<? super V, ? super V, ? extends V> reducer) {
+
+        return reduce(parallelismThreshold, (k, v) -> v, reducer);
+    }
+
+    @Override
+    public void clear() {
+        ++revision;
+        trackedHashCode = 0;
+        hashCodeStale = false;
+        oldTable = null;
+        int peak = Math.max(peakSize, size);
+        peakSize = 0;
+        if ((lowWaterMark > 0) && (table.length > (DEFAULT_CAPACITY << 1))) {
+            table = EMPTY_TABLE;
+            shared = false;
+        } else if ((table.length >= CLEAR_REALLOCATION_MIN_LENGTH) && (table.length > (lengthFor(peak) << 2))) {
+            // the table is far larger than recent use needs, so a fresh smaller one is cheaper than filling this one
+            table = new Object[lengthFor(peak << 1)];
+            shared = false;
+        } else if (shared) {
+            table = new Object[table.length];
+            shared = false;
+        } else {
+            Arrays.fill(table, null);
+        }
+        size = 0;
+        deletedCount = 0;
+    }
+
+    @Override
+    public Set<K> keySet() {
+
+        if (keySet == null) {
+            keySet = new OAKeySet();
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<V> values() {
+
+        if (values == null) {
+            values = new OAValues();
+        }
+        return values;
+    }
+
+    @Override
+    public Set<java.util.Map.Entry<K, V>> entrySet() {
+
+        if (entrySet == null) {
+            entrySet = new OAEntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * when set, the entry set's iterator, forEach and removeIf hand out one reused entry, which is only valid until
+     * the next element is visited.
+     */
+    public void setFlyweightEntries(boolean flyweight) {
+        flyweightEntries = flyweight;
+    }
+
+    public boolean isFlyweightEntries() {
+        return flyweightEntries;
+    }
+
+    /**
+     * returns a cursor positioned before the first entry. Cursors do not fail fast; the map must only be modified
+     * through the cursor while it is in use.
+     */
+    public Cursor cursor() {
+
+        return new Cursor();
+    }
+
+    public Object[][] toArray() {
+
+        Object[][] objects = new Object[size][2];
+
+        int o = 0;
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object key = walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                objects[o][0] = key;
+                objects[o++][1] = walkSlot(i + 1);
+            }
+        }
+
+        return objects;
+    }
+
+    @Override
+    public String toString() {
+        return describe('{', '}', true, true);
+    }
+
+    private String describe(char open, char close, boolean withKeys, boolean withValues) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(open);
+        String separator = "";
+
+        int end = walkLength();
+        for (int i = 0; i < end; i += 2) {
+            Object key = walkSlot(i);
+            if ((key != null) && (key != DELETED)) {
+                sb.append(separator);
+                if (withKeys) {
+                    sb.append(key);
+                    if (withValues) {
+                        sb.append('=');
+                    }
+                }
+                if (withValues) {
+                    sb.append(walkSlot(i + 1));
+                }
+                separator = ", ";
+            }
+        }
+
+        sb.append(close);
+
+        return sb.toString();
+    }
+
+    private int homeIndex(Object key, int tableLength) {
+        if (tableLength <= (TINY_CAPACITY << 1)) {
+            return 0;
+        }
+        return KeySlots.homeIndex(KeySlots.hash(key, hashSeed, strongHashKeys), tableLength);
+    }
+
+    /**
+     * finds the walk index of the key slot of each of count keys starting at keys[from], storing it in foundIndices, or
+     * -1 if the key is not present. The probes of all the keys are advanced in lock step, so that their cache misses
+     * overlap rather than being taken one after the other.
+     */
+    private void findAll(Object[] keys, int from, int count, int[] foundIndices, int[] startIndices) {
+        Object[] t = table;
+        int active = 0;
+        for (int k = 0; k < count; k++) {
+            Object key = keys[from + k];
+            if ((key == null) || (t.length == 0)) {
+                foundIndices[k] = -1;
+                startIndices[k] = -1;
+            } else {
+                int start = homeIndex(key, t.length);
+                foundIndices[k] = start;
+                startIndices[k] = start;
+                ++active;
+            }
+        }
+
+        while (active > 0) {
+            for (int k = 0; k < count; k++) {
+                if (startIndices[k] < 0) {
+                    continue;
+                }
+
+                int i = foundIndices[k];
+                Object tableItem = t[i];
+                if (tableItem == null) {
+                    foundIndices[k] = -1;
+                } else if ((tableItem != DELETED) && keys[from + k].equals(tableItem)) {
+                    foundIndices[k] = i;
+                } else {
+                    i += 2;
+                    if (i == t.length) {
+                        i = 0;
+                    }
+                    if (i != startIndices[k]) {
+                        foundIndices[k] = i;
+                        continue;
+                    }
+                    foundIndices[k] = -1;
+                }
+
+                startIndices[k] = -1;
+                --active;
+            }
+        }
+
+        Object[] old = oldTable;
+        if (old != null) {
+            for (int k = 0; k < count; k++) {
+                if (foundIndices[k] < 0) {
+                    int oldIndex = probe(old, keys[from + k]);
+                    if (oldIndex >= 0) {
+                        foundIndices[k] = t.length + oldIndex;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the walk index of the key slot of key, or a negative value if it is not present. Unlike find, a key that
+     * has not yet moved out of the old table is left where it is, so that reads never write to the map.
+     */
+    private int lookup(Object key) {
+        Object[] t = table;
+        int foundIndex = probe(t, key);
+        Object[] old = oldTable;
+        if ((foundIndex < 0) && (old != null)) {
+            int oldIndex = probe(old, key);
+            if (oldIndex >= 0) {
+                return t.length + oldIndex;
+            }
+        }
+
+        return foundIndex;
+    }
+
+    /**
+     * returns the number of slots a walk of the map visits: those of the table, followed while an incremental resize is
+     * under way by those of the old table. Walks read both rather than finishing the resize, so that they cost no more
+     * than the entries they visit.
+     */
+    private int walkLength() {
+        Object[] old = oldTable;
+        return (old == null) ? table.length : table.length + old.length;
+    }
+
+    private Object walkSlot(int walkIndex) {
+        Object[] t = table;
+        return (walkIndex < t.length) ? t[walkIndex] : oldTable[walkIndex - t.length];
+    }
+
+    private Object[][] walkTables() {
+        Object[] old = oldTable;
+        return (old == null) ? new Object[][] { table } : new Object[][] { table, old };
+    }
+
+    private int find(Object key) {
+        if ((oldTable != null) && (key != null)) {
+            int oldIndex = probe(oldTable, key);
+            if (oldIndex >= 0) {
+                moveFromOldTable(oldIndex);
+            }
+        }
+
+        return probe(table, key);
+    }
+
+    private int probe(Object[] t, Object key) {
+        if ((key == null) || (t.length == 0)) {
+            return Integer.MIN_VALUE;
+        }
+
+        return KeySlots.probe(t, homeIndex(key, t.length), key, false);
+    }
+
+    private boolean resizeIfNeeded(int expectedAdditionalItems) {
+
+        int slotCount = table.length >> 1;
+        int requiredSize = size + expectedAdditionalItems;
+        if (slotCount <= TINY_CAPACITY) {
+            if (requiredSize <= slotCount) {
+                return false;
+            }
+        } else {
+            double fillPercentage = 1.0 - ((slotCount - requiredSize) / ((double) slotCount));
+
+            if ((fillPercentage < loadFactor) && (table.length > size)) {
+                return false;
+            }
+        }
+
+        finishResize();
+
+        int newLength;
+        if ((requiredSize <= TINY_CAPACITY) && (slotCount < TINY_CAPACITY)) {
+            newLength = TINY_CAPACITY << 1;
+        } else if (slotCount <= TINY_CAPACITY) {
+            newLength = Math.max(DEFAULT_CAPACITY, GrowthPolicy.exactCapacity(requiredSize, loadFactor)) << 1;
+        } else {
+            newLength = Math.max(growthPolicy.nextCapacity(slotCount, requiredSize, loadFactor), GrowthPolicy.exactCapacity(requiredSize, loadFactor)) << 1;
+        }
 
+        if (incrementalResize && !shared && (table.length >= INCREMENTAL_RESIZE_MIN_LENGTH)) {
+            long start = System.nanoTime();
+            oldTable = table;
+            migrationIndex = 0;
+            table = new Object[newLength];
+            deletedCount = 0;
+            ++resizeCount;
+            lastResizeNanos = System.nanoTime() - start;
+        } else {
+            rehash(newLength);
+        }
+        return true;
     }
 
-    @Override
-    public int hashCode() {
-        int hashCode = 0;
+    /**
+     * moves the next count key slots of the old table into the table, ending the incremental resize once the old
+     * table has been walked.
+     */
+    private void migrate(int count) {
 
-        for (int i = 0; i < table.length; i += 2) {
-            K key = (K) table[i];
+        int end = (int) Math.min(oldTable.length, migrationIndex + (2L * count));
+        for (int i = migrationIndex; i < end; i += 2) {
+            Object key = oldTable[i];
             if ((key != null) && (key != DELETED)) {
-                V value = (V) table[i + 1];
-
-                hashCode += Objects.hashCode(key) ^ Objects.hashCode(value);
+                moveFromOldTable(i);
             }
         }
 
-        return hashCode;
-
-    }
-
-    @Override
-    public int size() {
-        return size;
+        migrationIndex = end;
+        if (migrationIndex == oldTable.length) {
+            oldTable = null;
+        }
     }
 
-    @Override
-    public boolean isEmpty() {
+    private void moveFromOldTable(int oldIndex) {
 
-        return size == 0;
+        copyOnWrite();
+        K key = (K) oldTable[oldIndex];
+        V value = (V) oldTable[oldIndex + 1];
+        oldTable[oldIndex] = DELETED;
+        oldTable[oldIndex + 1] = null;
+        --size;
+        putInternal(key, value);
     }
 
-    @Override
-    public boolean containsKey(Object key) {
+    private void finishResize() {
+        if (oldTable != null) {
+            migrate(oldTable.length >> 1);
+        }
+    }
 
-        int foundIndex = find(key);
-        return foundIndex >= 0;
+    /**
+     * when set, growing a large table no longer rehashes every entry inside the put that triggered it. The old table
+     * is kept alongside the new one and each later write moves a few of its entries across. Lookups and walks read both
+     * tables; only bulk writes, which touch every entry anyway, finish the move first.
+     */
+    public void setIncrementalResize(boolean incremental) {
+        incrementalResize = incremental;
+        if (!incremental) {
+            finishResize();
+        }
     }
 
-    @Override
-    public boolean containsValue(Object value) {
+    public boolean isIncrementalResize() {
+        return incrementalResize;
+    }
 
-        if (size == 0) {
-            return false;
-        }
+    private void rehash(int newLength) {
 
-        for (int i = 0; i < table.length; i += 2) {
-            Object tableItem = table[i];
-            if ((tableItem != null) && (tableItem != DELETED)) {
-                tableItem = table[i + 1];
+        finishResize();
+        long start = System.nanoTime();
+        size = 0;
+        deletedCount = 0;
+        Object[] previousTable = table;
+        table = new Object[newLength];
+        shared = false;
 
-                if (value == null) {
-                    if (tableItem == null) {
-                        return true;
-                    }
-                } else if (value.equals(tableItem)) {
-                    return true;
-                }
+        for (int i = 0; i < previousTable.length; i += 2) {
+            if ((previousTable[i] != null) && (previousTable[i] != DELETED)) {
+                putInternal((K) previousTable[i], (V) previousTable[i + 1]);
             }
         }
 
-        return false;
+        ++resizeCount;
+        lastResizeNanos = System.nanoTime() - start;
     }
 
-    @Override
-    public V get(Object key) {
-
-        int foundIndex = find(key);
-
-        if (foundIndex < 0) {
-            return null;
+    private int lengthFor(int count) {
+        if (count <= TINY_CAPACITY) {
+            return TINY_CAPACITY << 1;
         }
-
-        return (V) table[foundIndex + 1];
+        return Math.max(MIN_EXPANSION, ((int) (count / loadFactor) + 1) << 1);
     }
 
-    @Override
-    public V put(K key, V value) {
+    /**
+     * finishes a bulk removal, shrinking the table if it fell below the low water mark, and otherwise rebuilding it at
+     * its current capacity without tombstones once they and the remaining entries fill more than the load factor
+     * allows.
+     */
+    private boolean compactAfterRemoving(int removedCount) {
 
-        ++revision;
+        if (removedCount == 0) {
+            return false;
+        }
 
-        if (key == null) {
-            throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
+        ++revision;
+        shrinkIfNeeded();
+        if (Compaction.isNeeded(size, deletedCount, table.length >> 1, loadFactor)) {
+            rehash(table.length);
         }
+        return true;
+    }
 
-        int foundIndex = find(key);
-        if (foundIndex >= 0) {
-            int valueIndex = foundIndex + 1;
-            V oldValue = (V) table[valueIndex];
-            table[valueIndex] = value;
+    private void shrinkIfNeeded() {
 
-            return oldValue;
+        if ((lowWaterMark > 0) && (table.length > (DEFAULT_CAPACITY << 1)) && (size < (lowWaterMark * (table.length >> 1)))) {
+            rehash(Math.max(DEFAULT_CAPACITY << 1, lengthFor(size << 1)));
         }
+    }
 
-        if (!resizeIfNeeded(1)) {
-            foundIndex = -1 - foundIndex;
-            table[foundIndex++] = key;
-            table[foundIndex] = value;
-            ++size;
-            return null;
+    /**
+     * shrinks the table to the smallest one that holds the current entries at the load factor, or back to the
+     * shared empty table when there are none
+     */
+    public void trimToSize() {
+        ++revision;
+        if (size == 0) {
+            oldTable = null;
+            table = EMPTY_TABLE;
+            shared = false;
+            deletedCount = 0;
+            return;
         }
-
-        putInternal(key, value);
-        return null;
+        rehash(lengthFor(size));
     }
 
-    @Override
-    public V remove(Object key) {
+    /**
+     * rebuilds the table at its current capacity, dropping the tombstones left by removals
+     */
+    public void compact() {
         ++revision;
-        int foundIndex = find(key);
+        rehash(table.length);
+    }
 
-        if (foundIndex < 0) {
-            return null;
+    /**
+     * when set above 0, removing entries until fewer than this fraction of the slots are used shrinks the table to
+     * twice what the remaining entries need. Must be less than half the load factor, so that the shrunken table is
+     * not grown again by the next put.
+     */
+    public void setLowWaterMark(double lowWaterMarkFraction) {
+
+        if ((lowWaterMarkFraction < 0) || (lowWaterMarkFraction >= (loadFactor / 2))) {
+            throw new IllegalArgumentException("Low water mark must be at least 0 and less than half the load factor, but was " + lowWaterMarkFraction);
         }
 
-        V value = (V) table[foundIndex + 1];
-        table[foundIndex++] = DELETED;
-        table[foundIndex] = null;
-        --size;
-        return value;
+        lowWaterMark = lowWaterMarkFraction;
     }
 
-    @Override
-    public void putAll(Map<? extends K, ? extends V> m) {
-        ++revision;
-
-        if (m.isEmpty()) {
-            return;
-        }
+    public double getLowWaterMark() {
+        return lowWaterMark;
+    }
 
-        resizeIfNeeded(m.size());
+    public void setGrowthPolicy(GrowthPolicy policy) {
 
-        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+        if (policy == null) {
+            throw new NullPointerException("null growth policy is not allowed");
         }
+
+        growthPolicy = policy;
     }
 
-    @Override
-    public void clear() {
-        ++revision;
-        Arrays.fill(table, null);
-        size = 0;
+    public GrowthPolicy getGrowthPolicy() {
+        return growthPolicy;
     }
 
-    @Override
-    public Set<K> keySet() {
+    /**
+     * returns a snapshot of the table's occupancy and probe lengths. It only reads the table, so it may be called from
+     * a monitoring thread, but the numbers are then approximate if the map is being written at the same time.
+     */
+    public OAHashStats stats() {
+
+        Object[] t = table;
+        Object[] old = oldTable;
+        int deleted = 0;
+        int[] histogram = new int[8];
+        for (int i = 0; i < t.length; i += 2) {
+            Object key = t[i];
+            if (key == DELETED) {
+                ++deleted;
+            } else if (key != null) {
+                histogram = OAHashStats.record(histogram, probeLength(key, i, t.length));
+            }
+        }
+
+        if (old != null) {
+            for (int i = 0; i < old.length; i += 2) {
+                Object key = old[i];
+                if ((key != null) && (key != DELETED)) {
+                    histogram = OAHashStats.record(histogram, probeLength(key, i, old.length));
+                }
+            }
+        }
 
-        return new OAKeySet();
+        return new OAHashStats(t.length >> 1, size, deleted, histogram, resizeCount, lastResizeNanos);
     }
 
-    @Override
-    public Collection<V> values() {
+    /**
+     * registers the stats of this map with the platform MBean server, returning the name they were registered under.
+     * The server holds on to the map until that name is unregistered. The bean reads the table from the JMX thread,
+     * so its values race with writes to the map; see OAHashStatsMXBean.
+     */
+    public ObjectName registerMBean(String name) {
+        return OAHashStats.register("OAHashMap", name, this::stats);
+    }
 
-        return new OAValues();
+    private int probeLength(Object key, int keyIndex, int tableLength) {
+        return KeySlots.probeLength(keyIndex, homeIndex(key, tableLength), tableLength);
     }
 
-    @Override
-    public Set<java.util.Map.Entry<K, V>> entrySet() {
+    private OAMapEntry entryAt(OAMapEntry flyweight, int entryRevision, int index) {
+        if (flyweight == null) {
+            return new OAMapEntry(entryRevision, index);
+        }
 
-        return new OAEntrySet();
+        flyweight.entryRevision = entryRevision;
+        flyweight.entryIndex = index;
+        return flyweight;
     }
 
-    public Object[][] toArray() {
+    private int leafSlots(long parallelismThreshold) {
 
-        Object[][] objects = new Object[size][2];
+        if ((parallelismThreshold == Long.MAX_VALUE) || (size <= 1) || (size < parallelismThreshold)) {
+            return table.length;
+        }
 
-        int i = 0;
-        for (Map.Entry<K, V> entry : entrySet()) {
-            objects[i][0] = entry.getKey();
-            objects[i++][1] = entry.getValue();
+        int maxBatches = ForkJoinPool.getCommonPoolParallelism() << 2;
+        long batches = (parallelismThreshold <= 0) ? maxBatches : Math.min(size / parallelismThreshold, maxBatches);
+        if (batches <= 1) {
+            return table.length;
         }
 
-        return objects;
+        return Math.max(2, (int) (table.length / batches) & ~1);
     }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append('{');
-        String separator = "";
+    private void insertAt(int foundIndex, K key, V value) {
 
-        for (Map.Entry<K, V> entry : entrySet()) {
-            sb.append(separator).append(entry.getKey()).append('=').append(entry.getValue());
-            separator = ", ";
+        if (hashCodeTracked) {
+            trackedHashCode += key.hashCode() ^ Objects.hashCode(value);
         }
 
-        sb.append('}');
+        if (resizeIfNeeded(1) || (foundIndex == Integer.MIN_VALUE)) {
+            copyOnWrite();
+            putInternal(key, value);
+        } else {
+            copyOnWrite();
+            foundIndex = -1 - foundIndex;
+            table[foundIndex] = key;
+            table[foundIndex + 1] = value;
+            ++size;
 
-        return sb.toString();
-    }
+            if ((strongHashKeys == null) && KeySlots.isFlooding(key, probeLength(key, foundIndex, table.length))) {
+                strongHashKeys = KeyedHash.newKeys();
+                rehash(table.length);
+            }
+        }
 
-    private int find(Object key) {
-        if ((key == null) || (table.length == 0)) {
-            return Integer.MIN_VALUE;
+        if (oldTable != null) {
+            migrate(MIGRATION_SLOTS);
         }
+    }
 
-        int start = (key.hashCode() % (table.length >> 1)) << 1;
-        for (int i = start; i < table.length; i += 2) {
-            Object tableItem = table[i];
-            if (tableItem == null) {
-                return -i - 1;
-            }
+    private V setValueAt(int foundIndex, V value) {
 
-            if ((tableItem != DELETED) && key.equals(tableItem)) {
-                return i;
-            }
+        copyOnWrite();
+        Object[] t = table;
+        if (foundIndex >= t.length) {
+            foundIndex -= t.length;
+            t = oldTable;
         }
 
-        for (int i = 0; i < start; i += 2) {
-            Object tableItem = table[i];
-            if (tableItem == null) {
-                return -i - 1;
-            }
+        int valueIndex = foundIndex + 1;
+        V oldValue = (V) t[valueIndex];
+        t[valueIndex] = value;
 
-            if ((tableItem != DELETED) && key.equals(tableItem)) {
-                return i;
-            }
+        if (hashCodeTracked) {
+            int keyHash = t[foundIndex].hashCode();
+            trackedHashCode += (keyHash ^ Objects.hashCode(value)) - (keyHash ^ Objects.hashCode(oldValue));
         }
+        return oldValue;
+    }
 
-        return Integer.MIN_VALUE;
+    private V removeAt(int foundIndex) {
+
+        V value = removeSlot(foundIndex);
+
+        if (oldTable != null) {
+            migrate(MIGRATION_SLOTS);
+        }
+        return value;
     }
 
-    private boolean resizeIfNeeded(int expectedAdditionalItems) {
+    /**
+     * removes the entry at walk index foundIndex without moving any entries of the old table, so that a cursor walking
+     * the map neither skips nor revisits them
+     */
+    private V removeSlot(int foundIndex) {
 
-        int slotCount = table.length >> 1;
-        double fillPercentage = 1.0 - ((slotCount - (size + expectedAdditionalItems)) / ((double) slotCount));
+        copyOnWrite();
+        Object[] t = table;
+        if (foundIndex >= t.length) {
+            foundIndex -= t.length;
+            t = oldTable;
+        }
 
-        if ((fillPercentage < loadFactor) && (table.length > size)) {
-            return false;
+        if (hashCodeTracked) {
+            trackedHashCode -= t[foundIndex].hashCode() ^ Objects.hashCode(t[foundIndex + 1]);
         }
 
-        int newLength;
-        int proposedLength = ((int) (slotCount + expectedAdditionalItems + (slotCount * loadFactor))) << 1;
-        int minNewSize = table.length + MIN_EXPANSION;
-        if (proposedLength <= minNewSize) {
-            newLength = minNewSize;
-        } else {
-            newLength = proposedLength;
+        if (size > peakSize) {
+            peakSize = size;
         }
 
-        size = 0;
-        Object[] oldTable = table;
-        table = new Object[newLength];
+        V value = (V) t[foundIndex + 1];
+        t[foundIndex++] = DELETED;
+        t[foundIndex] = null;
+        --size;
+        if (t == table) {
+            ++deletedCount;
+        }
+        return value;
+    }
 
-        for (int i = 0; i < oldTable.length; i += 2) {
-            if ((oldTable[i] != null) && (oldTable[i] != DELETED)) {
-                putInternal((K) oldTable[i], (V) oldTable[i + 1]);
+    private void copyOnWrite() {
+        if (shared) {
+            table = table.clone();
+            if (oldTable != null) {
+                oldTable = oldTable.clone();
             }
+            shared = false;
         }
-
-        return true;
     }
 
     private void putInternal(K key, V value) {
@@ -366,10 +1421,13 @@ public class OAHashMap<K, V> implements Map<K, V> {
             throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
         }
 
-        int start = (key.hashCode() % (table.length >> 1)) << 1;
+        int start = homeIndex(key, table.length);
 
         for (int i = start; i < table.length; i += 2) {
             if ((table[i] == null) || (table[i] == DELETED)) {
+                if (table[i] == DELETED) {
+                    --deletedCount;
+                }
                 table[i++] = key;
                 table[i] = value;
                 ++size;
@@ -379,6 +1437,9 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         for (int i = 0; i < start; i += 2) {
             if ((table[i] == null) || (table[i] == DELETED)) {
+                if (table[i] == DELETED) {
+                    --deletedCount;
+                }
                 table[i++] = key;
                 table[i] = value;
                 ++size;
@@ -415,6 +1476,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
             return new OAHashMapKeySetIterator();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+
+            return new OAHashMapKeySpliterator(0, -1, 0, 0);
+        }
+
         @Override
         public Object[] toArray() {
 
@@ -479,41 +1546,55 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         @Override
         public boolean retainAll(Collection<?> c) {
-            ++revision;
 
+            finishResize();
             if (c.isEmpty()) {
                 boolean wasEmpty = isEmpty();
                 OAHashMap.this.clear();
                 return !wasEmpty;
             }
 
-            boolean modified = false;
+            int removedCount = 0;
             for (int i = 0; i < table.length; i += 2) {
                 final K key = (K) table[i];
 
                 if ((key != null) && (key != DELETED)) {
 
                     if (!c.contains(key)) {
-                        table[i] = DELETED;
-                        table[i + 1] = null;
-                        --size;
-                        modified = true;
+                        removeAt(i);
+                        ++removedCount;
                     }
                 }
             }
 
-            return modified;
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
         public boolean removeAll(Collection<?> c) {
 
-            boolean modified = false;
-            for (Object k : c) {
-                modified |= remove(k);
+            finishResize();
+            int removedCount = 0;
+            if (c.size() < size) {
+                for (Object k : c) {
+                    int foundIndex = find(k);
+                    if (foundIndex >= 0) {
+                        removeAt(foundIndex);
+                        ++removedCount;
+                    }
+                }
+            } else {
+                for (int i = 0; i < table.length; i += 2) {
+                    final K key = (K) table[i];
+
+                    if ((key != null) && (key != DELETED) && c.contains(key)) {
+                        removeAt(i);
+                        ++removedCount;
+                    }
+                }
             }
 
-            return modified;
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
@@ -521,11 +1602,66 @@ public class OAHashMap<K, V> implements Map<K, V> {
             OAHashMap.this.clear();
         }
 
+        @Override
+        public void forEach(Consumer<? super K> action) {
+
+            if (action == null) {
+                throw new NullPointerException("forEach of null action is not allowed");
+            }
+
+            int expectedRevision = revision;
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    action.accept((K) key);
+                }
+            }
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super K> filter) {
+
+            finishResize();
+            if (filter == null) {
+                throw new NullPointerException("removeIf of null filter is not allowed");
+            }
+
+            int expectedRevision = revision;
+            Object[] t = table;
+            int removedCount = 0;
+            for (int i = 0; i < t.length; i += 2) {
+                Object key = t[i];
+                if ((key != null) && (key != DELETED) && filter.test((K) key)) {
+                    if (expectedRevision != revision) {
+                        throw new ConcurrentModificationException();
+                    }
+                    removeAt(i);
+                    t = table;
+                    ++removedCount;
+                }
+            }
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+
+            return compactAfterRemoving(removedCount);
+        }
+
         @Override
         public int hashCode() {
             int hashCode = 0;
-            for (Map.Entry<K, V> entry : entrySet()) {
-                hashCode += Objects.hashCode(entry.getKey());
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    hashCode += key.hashCode();
+                }
             }
 
             return hashCode;
@@ -553,18 +1689,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            String separator = "";
-
-            for (Map.Entry<K, V> entry : entrySet()) {
-                sb.append(separator).append(entry.getKey());
-                separator = ", ";
-            }
-
-            sb.append(']');
-
-            return sb.toString();
+            return describe('[', ']', true, false);
         }
 
     }
@@ -595,6 +1720,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
             return new OAHashMapValuesIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+
+            return new OAHashMapValuesSpliterator(0, -1, 0, 0);
+        }
+
         @Override
         public Object[] toArray() {
 
@@ -636,6 +1767,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         @Override
         public boolean remove(Object o) {
+            finishResize();
             ++revision;
 
             boolean modified = false;
@@ -646,9 +1778,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
                     final V value = (V) table[i + 1];
 
                     if (Objects.equals(value, o)) {
-                        table[i] = DELETED;
-                        table[i + 1] = null;
-                        --size;
+                        removeAt(i);
                         modified = true;
                     }
                 }
@@ -677,47 +1807,41 @@ public class OAHashMap<K, V> implements Map<K, V> {
         @Override
         public boolean removeAll(Collection<?> c) {
 
-            boolean modified = false;
-            OAHashMapValuesIterator it = (OAHashMapValuesIterator) iterator();
-            while (it.hasNext()) {
-                V v = it.next();
-                if (c.contains(v)) {
-                    it.removeInternal();
-                    modified = true;
+            finishResize();
+            int removedCount = 0;
+            for (int i = 0; i < table.length; i += 2) {
+                final K key = (K) table[i];
+
+                if ((key != null) && (key != DELETED) && c.contains(table[i + 1])) {
+                    removeAt(i);
+                    ++removedCount;
                 }
             }
 
-            return modified;
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
         public boolean retainAll(Collection<?> c) {
 
-            ++revision;
-
+            finishResize();
             if (c.isEmpty()) {
                 boolean wasEmpty = isEmpty();
                 OAHashMap.this.clear();
                 return !wasEmpty;
             }
 
-            boolean modified = false;
+            int removedCount = 0;
             for (int i = 0; i < table.length; i += 2) {
                 final K key = (K) table[i];
 
-                if ((key != null) && (key != DELETED)) {
-                    final V value = (V) table[i + 1];
-
-                    if (!c.contains(value)) {
-                        table[i] = DELETED;
-                        table[i + 1] = null;
-                        --size;
-                        modified = true;
-                    }
+                if ((key != null) && (key != DELETED) && !c.contains(table[i + 1])) {
+                    removeAt(i);
+                    ++removedCount;
                 }
             }
 
-            return modified;
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
@@ -726,19 +1850,59 @@ public class OAHashMap<K, V> implements Map<K, V> {
         }
 
         @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            String separator = "";
+        public void forEach(Consumer<? super V> action) {
+
+            if (action == null) {
+                throw new NullPointerException("forEach of null action is not allowed");
+            }
+
+            int expectedRevision = revision;
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    action.accept((V) walkSlot(i + 1));
+                }
+            }
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super V> filter) {
+
+            finishResize();
+            if (filter == null) {
+                throw new NullPointerException("removeIf of null filter is not allowed");
+            }
+
+            int expectedRevision = revision;
+            Object[] t = table;
+            int removedCount = 0;
+            for (int i = 0; i < t.length; i += 2) {
+                Object key = t[i];
+                if ((key != null) && (key != DELETED) && filter.test((V) t[i + 1])) {
+                    if (expectedRevision != revision) {
+                        throw new ConcurrentModificationException();
+                    }
+                    removeAt(i);
+                    t = table;
+                    ++removedCount;
+                }
+            }
 
-            for (Map.Entry<K, V> entry : entrySet()) {
-                sb.append(separator).append(entry.getValue());
-                separator = ", ";
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
             }
 
-            sb.append(']');
+            return compactAfterRemoving(removedCount);
+        }
 
-            return sb.toString();
+        @Override
+        public String toString() {
+            return describe('[', ']', false, true);
         }
     }
 
@@ -777,14 +1941,24 @@ public class OAHashMap<K, V> implements Map<K, V> {
             return new OAHashMapEntrySetIterator();
         }
 
+        @Override
+        public Spliterator<java.util.Map.Entry<K, V>> spliterator() {
+
+            return new OAHashMapEntrySpliterator(0, -1, 0, 0);
+        }
+
         @Override
         public Object[] toArray() {
 
             Object[] objects = new Object[size];
 
-            int i = 0;
-            for (Map.Entry<K, V> entry : this) {
-                objects[i++] = entry;
+            int o = 0;
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    objects[o++] = new OAMapEntry(revision, i);
+                }
             }
 
             return objects;
@@ -800,12 +1974,16 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 objects = (T[]) Array.newInstance(a.getClass().getComponentType(), size);
             }
 
-            int i = 0;
-            for (Map.Entry<K, V> entry : this) {
-                objects[i++] = (T) entry;
+            int o = 0;
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    objects[o++] = (T) new OAMapEntry(revision, i);
+                }
             }
-            if (i < objects.length) {
-                objects[i] = null;
+            if (o < objects.length) {
+                objects[o] = null;
             }
 
             return objects;
@@ -823,7 +2001,16 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 return false;
             }
 
-            return OAHashMap.this.remove(((Map.Entry<K, V>) o).getKey()) != null;
+            Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
+            int foundIndex = find(entry.getKey());
+            if ((foundIndex < 0) || !Objects.equals(table[foundIndex + 1], entry.getValue())) {
+                return false;
+            }
+
+            ++revision;
+            removeAt(foundIndex);
+            shrinkIfNeeded();
+            return true;
         }
 
         @Override
@@ -853,41 +2040,57 @@ public class OAHashMap<K, V> implements Map<K, V> {
         @Override
         public boolean retainAll(Collection<?> c) {
 
-            ++revision;
-
+            finishResize();
             if (c.isEmpty()) {
                 boolean wasEmpty = isEmpty();
                 OAHashMap.this.clear();
                 return !wasEmpty;
             }
 
-            boolean modified = false;
+            int removedCount = 0;
             for (int i = 0; i < table.length; i += 2) {
                 final K key = (K) table[i];
 
                 if ((key != null) && (key != DELETED)) {
 
                     if (!c.contains(new OAMapEntry(revision, i))) {
-                        table[i] = DELETED;
-                        table[i + 1] = null;
-                        --size;
-                        modified = true;
+                        removeAt(i);
+                        ++removedCount;
                     }
                 }
             }
 
-            return modified;
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
         public boolean removeAll(Collection<?> c) {
 
-            boolean modified = false;
-            for (Object o : c) {
-                Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
-                modified |= (OAHashMap.this.remove(entry.getKey()) != null);
+            finishResize();
+            int removedCount = 0;
+            if (c.size() < size) {
+                for (Object o : c) {
+                    if (o instanceof Map.Entry) {
+                        Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
+                        int foundIndex = find(entry.getKey());
+                        if ((foundIndex >= 0) && Objects.equals(table[foundIndex + 1], entry.getValue())) {
+                            removeAt(foundIndex);
+                            ++removedCount;
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < table.length; i += 2) {
+                    final K key = (K) table[i];
+
+                    if ((key != null) && (key != DELETED) && c.contains(new OAMapEntry(revision, i))) {
+                        removeAt(i);
+                        ++removedCount;
+                    }
+                }
             }
-            return modified;
+
+            return compactAfterRemoving(removedCount);
         }
 
         @Override
@@ -895,6 +2098,59 @@ public class OAHashMap<K, V> implements Map<K, V> {
             OAHashMap.this.clear();
         }
 
+        @Override
+        public void forEach(Consumer<? super Map.Entry<K, V>> action) {
+
+            if (action == null) {
+                throw new NullPointerException("forEach of null action is not allowed");
+            }
+
+            int expectedRevision = revision;
+            OAMapEntry flyweight = flyweightEntries ? new OAMapEntry(expectedRevision, 0) : null;
+            int end = walkLength();
+            for (int i = 0; i < end; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    action.accept(entryAt(flyweight, expectedRevision, i));
+                }
+            }
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Map.Entry<K, V>> filter) {
+
+            finishResize();
+            if (filter == null) {
+                throw new NullPointerException("removeIf of null filter is not allowed");
+            }
+
+            int expectedRevision = revision;
+            OAMapEntry flyweight = flyweightEntries ? new OAMapEntry(expectedRevision, 0) : null;
+            Object[] t = table;
+            int removedCount = 0;
+            for (int i = 0; i < t.length; i += 2) {
+                Object key = t[i];
+                if ((key != null) && (key != DELETED) && filter.test(entryAt(flyweight, expectedRevision, i))) {
+                    if (expectedRevision != revision) {
+                        throw new ConcurrentModificationException();
+                    }
+                    removeAt(i);
+                    t = table;
+                    ++removedCount;
+                }
+            }
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+
+            return compactAfterRemoving(removedCount);
+        }
+
         @Override
         public int hashCode() {
             return OAHashMap.this.hashCode();
@@ -922,18 +2178,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            String separator = "";
-
-            for (Map.Entry<K, V> entry : entrySet()) {
-                sb.append(separator).append(entry.getKey()).append('=').append(entry.getValue());
-                separator = ", ";
-            }
-
-            sb.append(']');
-
-            return sb.toString();
+            return describe('[', ']', true, true);
         }
     }
 
@@ -941,11 +2186,13 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         private int itRevision = revision;
         private int tableIndex;
+        private int fence;
         private int activeIndex;
         private boolean primed;
 
         public OAHashMapKeySetIterator() {
             tableIndex = -2;
+            fence = walkLength();
             activeIndex = -2;
             primed = false;
         }
@@ -958,7 +2205,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
             findNextSlot();
 
-            return tableIndex < table.length;
+            return tableIndex < fence;
         }
 
         @Override
@@ -970,12 +2217,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
             findNextSlot();
             primed = false;
 
-            if ((tableIndex < 0) || (tableIndex >= table.length)) {
+            if ((tableIndex < 0) || (tableIndex >= fence)) {
                 throw new NoSuchElementException();
             }
 
             activeIndex = tableIndex;
-            return (K) table[tableIndex];
+            return (K) walkSlot(tableIndex);
         }
 
         @Override
@@ -990,13 +2237,11 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            if ((activeIndex < 0) || (activeIndex >= table.length)) {
+            if ((activeIndex < 0) || (activeIndex >= fence)) {
                 throw new IllegalStateException();
             }
 
-            table[activeIndex] = DELETED;
-            table[activeIndex + 1] = null;
-            --size;
+            removeSlot(activeIndex);
             tableIndex = activeIndex - 2;
             activeIndex = -2;
             primed = false;
@@ -1011,8 +2256,9 @@ public class OAHashMap<K, V> implements Map<K, V> {
             }
 
             tableIndex += 2;
-            while (tableIndex < table.length) {
-                if ((table[tableIndex] != null) && (table[tableIndex] != DELETED)) {
+            while (tableIndex < fence) {
+                Object key = walkSlot(tableIndex);
+                if ((key != null) && (key != DELETED)) {
                     primed = true;
                     break;
                 }
@@ -1026,11 +2272,13 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         private int itRevision = revision;
         private int tableIndex;
+        private int fence;
         private int activeIndex;
         private boolean primed;
 
         public OAHashMapValuesIterator() {
             tableIndex = -2;
+            fence = walkLength();
             activeIndex = -2;
             primed = false;
         }
@@ -1043,7 +2291,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
             findNextSlot();
 
-            return tableIndex < table.length;
+            return tableIndex < fence;
         }
 
         @Override
@@ -1055,12 +2303,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
             findNextSlot();
             primed = false;
 
-            if ((tableIndex < 0) || (tableIndex >= table.length)) {
+            if ((tableIndex < 0) || (tableIndex >= fence)) {
                 throw new NoSuchElementException();
             }
 
             activeIndex = tableIndex;
-            return (V) table[tableIndex + 1];
+            return (V) walkSlot(tableIndex + 1);
         }
 
         @Override
@@ -1071,7 +2319,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            if ((activeIndex < 0) || (activeIndex >= table.length)) {
+            if ((activeIndex < 0) || (activeIndex >= fence)) {
                 throw new IllegalStateException();
             }
 
@@ -1092,13 +2340,11 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            if ((activeIndex < 0) || (activeIndex >= table.length)) {
+            if ((activeIndex < 0) || (activeIndex >= fence)) {
                 throw new IllegalStateException();
             }
 
-            table[tableIndex] = DELETED;
-            table[tableIndex + 1] = null;
-            --size;
+            removeSlot(tableIndex);
             tableIndex = activeIndex - 2;
             activeIndex = -2;
             primed = false;
@@ -1113,8 +2359,9 @@ public class OAHashMap<K, V> implements Map<K, V> {
             }
 
             tableIndex += 2;
-            while (tableIndex < table.length) {
-                if ((table[tableIndex] != null) && (table[tableIndex] != DELETED)) {
+            while (tableIndex < fence) {
+                Object key = walkSlot(tableIndex);
+                if ((key != null) && (key != DELETED)) {
                     primed = true;
                     break;
                 }
@@ -1128,11 +2375,17 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
         private int itRevision = revision;
         private int tableIndex;
+        private int fence;
         private boolean primed;
+        private OAMapEntry flyweight;
 
         public OAHashMapEntrySetIterator() {
             tableIndex = -2;
+            fence = walkLength();
             primed = false;
+            if (flyweightEntries) {
+                flyweight = new OAMapEntry(itRevision, 0);
+            }
         }
 
         @Override
@@ -1143,7 +2396,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
             findNextSlot();
 
-            return tableIndex < table.length;
+            return tableIndex < fence;
         }
 
         @Override
@@ -1155,11 +2408,11 @@ public class OAHashMap<K, V> implements Map<K, V> {
             findNextSlot();
             primed = false;
 
-            if ((tableIndex < 0) || (tableIndex >= table.length)) {
+            if ((tableIndex < 0) || (tableIndex >= fence)) {
                 throw new NoSuchElementException();
             }
 
-            return new OAMapEntry(itRevision, tableIndex);
+            return entryAt(flyweight, itRevision, tableIndex);
         }
 
         @Override
@@ -1173,8 +2426,9 @@ public class OAHashMap<K, V> implements Map<K, V> {
             }
 
             tableIndex += 2;
-            while (tableIndex < table.length) {
-                if ((table[tableIndex] != null) && (table[tableIndex] != DELETED)) {
+            while (tableIndex < fence) {
+                Object key = walkSlot(tableIndex);
+                if ((key != null) && (key != DELETED)) {
                     primed = true;
                     break;
                 }
@@ -1184,6 +2438,363 @@ public class OAHashMap<K, V> implements Map<K, V> {
         }
     }
 
+    public final class Cursor {
+
+        private int tableIndex = -2;
+
+        private Cursor() {
+        }
+
+        public boolean advance() {
+            int end = walkLength();
+            int i = tableIndex + 2;
+            while (i < end) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    tableIndex = i;
+                    return true;
+                }
+                i += 2;
+            }
+
+            tableIndex = end;
+            return false;
+        }
+
+        public K key() {
+            return (K) walkSlot(checkedIndex());
+        }
+
+        public V value() {
+            return (V) walkSlot(checkedIndex() + 1);
+        }
+
+        public V setValue(V value) {
+            return setValueAt(checkedIndex(), value);
+        }
+
+        public V remove() {
+            int index = checkedIndex();
+            ++revision;
+            return removeSlot(index);
+        }
+
+        private int checkedIndex() {
+            if ((tableIndex < 0) || (tableIndex >= walkLength()) || (walkSlot(tableIndex) == DELETED)) {
+                throw new IllegalStateException();
+            }
+
+            return tableIndex;
+        }
+    }
+
+    private abstract class OAHashMapSpliterator<T> implements Spliterator<T> {
+
+        int tableIndex; // next slot to visit
+        int fence; // one past the last slot to visit, or -1 until first use
+        int est; // size estimate
+        int expectedRevision;
+
+        OAHashMapSpliterator(int origin, int fence, int est, int expectedRevision) {
+            tableIndex = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedRevision = expectedRevision;
+        }
+
+        abstract T element(int index);
+
+        abstract OAHashMapSpliterator<T> split(int origin, int splitFence, int splitEst);
+
+        final int getFence() {
+            if (fence < 0) {
+                fence = walkLength();
+                est = size;
+                expectedRevision = revision;
+            }
+            return fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int hi = getFence();
+            int lo = tableIndex;
+            int mid = ((lo + hi) >>> 1) & ~1;
+            if (lo >= mid) {
+                return null;
+            }
+
+            tableIndex = mid;
+            est >>>= 1;
+            return split(lo, mid, est);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+
+            if (action == null) {
+                throw new NullPointerException("tryAdvance of null action is not allowed");
+            }
+
+            int hi = getFence();
+            while (tableIndex < hi) {
+                int i = tableIndex;
+                tableIndex += 2;
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    action.accept(element(i));
+                    if (expectedRevision != revision) {
+                        throw new ConcurrentModificationException();
+                    }
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+
+            if (action == null) {
+                throw new NullPointerException("forEachRemaining of null action is not allowed");
+            }
+
+            int hi = getFence();
+            for (int i = tableIndex; i < hi; i += 2) {
+                Object key = walkSlot(i);
+                if ((key != null) && (key != DELETED)) {
+                    action.accept(element(i));
+                }
+            }
+            tableIndex = hi;
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        final boolean isExactlySized() {
+            return (fence < 0) || (est == size);
+        }
+    }
+
+    private final class OAHashMapKeySpliterator extends OAHashMapSpliterator<K> {
+
+        OAHashMapKeySpliterator(int origin, int fence, int est, int expectedRevision) {
+            super(origin, fence, est, expectedRevision);
+        }
+
+        @Override
+        K element(int index) {
+            return (K) walkSlot(index);
+        }
+
+        @Override
+        OAHashMapSpliterator<K> split(int origin, int splitFence, int splitEst) {
+            return new OAHashMapKeySpliterator(origin, splitFence, splitEst, expectedRevision);
+        }
+
+        @Override
+        public int characteristics() {
+            return (isExactlySized() ? Spliterator.SIZED : 0) | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    private final class OAHashMapValuesSpliterator extends OAHashMapSpliterator<V> {
+
+        OAHashMapValuesSpliterator(int origin, int fence, int est, int expectedRevision) {
+            super(origin, fence, est, expectedRevision);
+        }
+
+        @Override
+        V element(int index) {
+            return (V) walkSlot(index + 1);
+        }
+
+        @Override
+        OAHashMapSpliterator<V> split(int origin, int splitFence, int splitEst) {
+            return new OAHashMapValuesSpliterator(origin, splitFence, splitEst, expectedRevision);
+        }
+
+        @Override
+        public int characteristics() {
+            return isExactlySized() ? Spliterator.SIZED : 0;
+        }
+    }
+
+    private final class OAHashMapEntrySpliterator extends OAHashMapSpliterator<Map.Entry<K, V>> {
+
+        OAHashMapEntrySpliterator(int origin, int fence, int est, int expectedRevision) {
+            super(origin, fence, est, expectedRevision);
+        }
+
+        @Override
+        Map.Entry<K, V> element(int index) {
+            return new OAMapEntry(expectedRevision, index);
+        }
+
+        @Override
+        OAHashMapSpliterator<Map.Entry<K, V>> split(int origin, int splitFence, int splitEst) {
+            return new OAHashMapEntrySpliterator(origin, splitFence, splitEst, expectedRevision);
+        }
+
+        @Override
+        public int characteristics() {
+            return (isExactlySized() ? Spliterator.SIZED : 0) | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    private abstract class OAHashMapBulkTask<U> extends RecursiveTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object[] taskTable;
+        final int lo;
+        final int hi;
+        final int leafSlots;
+
+        OAHashMapBulkTask(Object[] t, int lo, int hi, int leafSlots) {
+            taskTable = t;
+            this.lo = lo;
+            this.hi = hi;
+            this.leafSlots = leafSlots;
+        }
+
+        abstract OAHashMapBulkTask<U> split(int splitLo, int splitHi);
+
+        abstract U scan();
+
+        U combine(U left, U right) {
+            return null;
+        }
+
+        @Override
+        protected U compute() {
+            if ((hi - lo) <= leafSlots) {
+                return scan();
+            }
+
+            int mid = ((lo + hi) >>> 1) & ~1;
+            OAHashMapBulkTask<U> right = split(mid, hi);
+            right.fork();
+            U leftResult = split(lo, mid).compute();
+            return combine(leftResult, right.join());
+        }
+    }
+
+    private final class OAHashMapForEachTask extends OAHashMapBulkTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BiConsumer<? super K, ? super V> action;
+
+        OAHashMapForEachTask(Object[] t, int lo, int hi, int leafSlots, BiConsumer<? super K, ? super V> action) {
+            super(t, lo, hi, leafSlots);
+            this.action = action;
+        }
+
+        @Override
+        OAHashMapBulkTask<Void> split(int splitLo, int splitHi) {
+            return new OAHashMapForEachTask(taskTable, splitLo, splitHi, leafSlots, action);
+        }
+
+        @Override
+        Void scan() {
+            for (int i = lo; i < hi; i += 2) {
+                Object key = taskTable[i];
+                if ((key != null) && (key != DELETED)) {
+                    action.accept((K) key, (V) taskTable[i + 1]);
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class OAHashMapSearchTask<U> extends OAHashMapBulkTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BiFunction<? super K, ? super V, ? extends U> searchFunction;
+        private final AtomicReference<U> result;
+
+        OAHashMapSearchTask(Object[] t, int lo, int hi, int leafSlots, BiFunction<? super K, ? super V, ? extends U> searchFunction,
+                AtomicReference<U> result) {
+            super(t, lo, hi, leafSlots);
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        OAHashMapBulkTask<U> split(int splitLo, int splitHi) {
+            return new OAHashMapSearchTask<>(taskTable, splitLo, splitHi, leafSlots, searchFunction, result);
+        }
+
+        @Override
+        U scan() {
+            for (int i = lo; (i < hi) && (result.get() == null); i += 2) {
+                Object key = taskTable[i];
+                if ((key != null) && (key != DELETED)) {
+                    U u = searchFunction.apply((K) key, (V) taskTable[i + 1]);
+                    if (u != null) {
+                        result.compareAndSet(null, u);
+                        break;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class OAHashMapReduceTask<U> extends OAHashMapBulkTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BiFunction<? super K, ? super V, ? extends U> transformer;
+        private final BiFunction<? super U, ? super U, ? extends U> reducer;
+
+        OAHashMapReduceTask(Object[] t, int lo, int hi, int leafSlots, BiFunction<? super K, ? super V, ? extends U> transformer,
+                BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(t, lo, hi, leafSlots);
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+
+        @Override
+        OAHashMapBulkTask<U> split(int splitLo, int splitHi) {
+            return new OAHashMapReduceTask<>(taskTable, splitLo, splitHi, leafSlots, transformer, reducer);
+        }
+
+        @Override
+        U scan() {
+            U r = null;
+            for (int i = lo; i < hi; i += 2) {
+                Object key = taskTable[i];
+                if ((key != null) && (key != DELETED)) {
+                    r = combine(r, transformer.apply((K) key, (V) taskTable[i + 1]));
+                }
+            }
+            return r;
+        }
+
+        @Override
+        U combine(U left, U right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            return reducer.apply(left, right);
+        }
+    }
+
     private final class OAMapEntry implements Map.Entry<K, V> {
 
         private int entryRevision;
@@ -1200,7 +2811,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            return (K) table[entryIndex];
+            return (K) walkSlot(entryIndex);
         }
 
         @Override
@@ -1209,7 +2820,7 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            return (V) table[entryIndex + 1];
+            return (V) walkSlot(entryIndex + 1);
         }
 
         @Override
@@ -1218,14 +2829,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
                 throw new ConcurrentModificationException();
             }
 
-            V oldValue = (V) table[entryIndex + 1];
-            table[entryIndex + 1] = value;
-            return oldValue;
+            return setValueAt(entryIndex, value);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hashCode(table[entryIndex]) ^ Objects.hashCode(table[entryIndex + 1]);
+            return Objects.hashCode(walkSlot(entryIndex)) ^ Objects.hashCode(walkSlot(entryIndex + 1));
         }
 
         @Override
@@ -1236,12 +2845,12 @@ public class OAHashMap<K, V> implements Map<K, V> {
 
             Map.Entry<K, V> that = (Map.Entry<K, V>) o;
 
-            return Objects.equals(table[entryIndex], that.getKey()) && Objects.equals(table[entryIndex + 1], that.getValue());
+            return Objects.equals(walkSlot(entryIndex), that.getKey()) && Objects.equals(walkSlot(entryIndex + 1), that.getValue());
         }
 
         @Override
         public String toString() {
-            return "[" + table[entryIndex] + "=" + table[entryIndex + 1] + "]";
+            return "[" + walkSlot(entryIndex) + "=" + walkSlot(entryIndex + 1) + "]";
         }
     }
 }
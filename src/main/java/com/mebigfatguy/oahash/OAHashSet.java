@@ -24,6 +24,16 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.management.ObjectName;
 
 public class OAHashSet<E> implements Set<E> {
 
@@ -34,17 +44,33 @@ public class OAHashSet<E> implements Set<E> {
         }
     };
 
+    private static final Object[] EMPTY_TABLE = {}; // shared by all sets until their first add
     private static final int DEFAULT_CAPACITY = 16;
+    private static final int TINY_CAPACITY = 8; // tables of at most this many slots are filled and scanned from the start, without hashing
+    private static final int CLEAR_REALLOCATION_MIN_LENGTH = 1 << 10; // smaller tables are always cleared in place
+    private static final int FLOODING_PROBE_LENGTH = 128; // String elements added this far from their home slot switch to keyed hashing
     private static final double DEFAULT_LOAD_FACTOR = 0.70;
     private static final int MIN_EXPANSION = 10;
+    private static final int LOOKUP_BATCH = 8; // probes kept in flight by the batched lookups
 
     private Object[] table;
     private int size;
     private double loadFactor;
     private int revision;
+    private int peakSize; // largest size since the last clear, as of the last removal
+    private int deletedCount; // tombstones in table
+    private boolean hashCodeTracked;
+    private boolean hashCodeStale; // set by bulk operations that don't maintain trackedHashCode
+    private int trackedHashCode;
+    private double lowWaterMark; // fraction of the slots below which removals shrink the table, 0 to never shrink
+    private GrowthPolicy growthPolicy = GrowthPolicy.DEFAULT;
+    private long resizeCount;
+    private long lastResizeNanos;
+    private int hashSeed = KeyedHash.newSeed();
+    private long[] strongHashKeys; // SipHash keys for String elements, once probe lengths suggest the elements were chosen to collide
 
     public OAHashSet() {
-        this(DEFAULT_CAPACITY);
+        this(0);
     }
 
     public OAHashSet(int initialCapacity) {
@@ -61,24 +87,36 @@ public class OAHashSet<E> implements Set<E> {
             throw new IllegalArgumentException("Initial Load Factor must be between 0 and 1 exclusively, but was " + initialLoadFactor);
         }
 
-        table = new Object[initialCapacity];
+        table = (initialCapacity == 0) ? EMPTY_TABLE : new Object[initialCapacity];
         loadFactor = initialLoadFactor;
     }
 
     public OAHashSet(Set<E> source) {
-        this((source == null) ? DEFAULT_CAPACITY : (int) (source.size() / DEFAULT_LOAD_FACTOR));
+        this((source == null) ? DEFAULT_CAPACITY : (source instanceof OAHashSet) ? 0 : (int) (source.size() / DEFAULT_LOAD_FACTOR));
 
         if (source == null) {
             return;
         }
 
+        if (source instanceof OAHashSet) {
+            OAHashSet<E> that = (OAHashSet<E>) source;
+            table = that.table.clone();
+            size = that.size;
+            deletedCount = that.deletedCount;
+            loadFactor = that.loadFactor;
+            growthPolicy = that.growthPolicy;
+            hashSeed = that.hashSeed;
+            strongHashKeys = that.strongHashKeys;
+            return;
+        }
+
         for (E e : source) {
             addInternal(e);
         }
     }
 
     public OAHashSet(E... source) {
-        this((source == null) ? DEFAULT_CAPACITY : source.length * (source.length * DEFAULT_CAPACITY));
+        this((source == null) ? DEFAULT_CAPACITY : GrowthPolicy.exactCapacity(source.length, DEFAULT_LOAD_FACTOR));
 
         if (source == null) {
             return;
@@ -89,6 +127,105 @@ public class OAHashSet<E> implements Set<E> {
         }
     }
 
+    public static <E> OAHashSet<E> union(OAHashSet<? extends E> a, OAHashSet<? extends E> b) {
+
+        OAHashSet<? extends E> smaller = (a.size <= b.size) ? a : b;
+        OAHashSet<? extends E> larger = (smaller == a) ? b : a;
+
+        Object[] missing = new Object[smaller.size];
+        int missingCount = 0;
+        for (Object element : smaller.table) {
+            if ((element != null) && (element != DELETED) && (larger.find(element) < 0)) {
+                missing[missingCount++] = element;
+            }
+        }
+
+        OAHashSet<E> result = withExactCapacity(larger.size + missingCount, a.loadFactor);
+        for (Object element : larger.table) {
+            if ((element != null) && (element != DELETED)) {
+                result.addInternal((E) element);
+            }
+        }
+        for (int i = 0; i < missingCount; i++) {
+            result.addInternal((E) missing[i]);
+        }
+
+        return result;
+    }
+
+    public static <E> OAHashSet<E> intersect(OAHashSet<? extends E> a, OAHashSet<? extends E> b) {
+
+        OAHashSet<? extends E> smaller = (a.size <= b.size) ? a : b;
+        OAHashSet<? extends E> larger = (smaller == a) ? b : a;
+
+        Object[] common = new Object[smaller.size];
+        int commonCount = 0;
+        for (Object element : smaller.table) {
+            if ((element != null) && (element != DELETED) && (larger.find(element) >= 0)) {
+                common[commonCount++] = element;
+            }
+        }
+
+        OAHashSet<E> result = withExactCapacity(commonCount, a.loadFactor);
+        for (int i = 0; i < commonCount; i++) {
+            result.addInternal((E) common[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * returns the elements of a that are not in b
+     */
+    public static <E> OAHashSet<E> difference(OAHashSet<? extends E> a, OAHashSet<?> b) {
+
+        Object[] remaining = new Object[a.size];
+        int remainingCount = 0;
+        for (Object element : a.table) {
+            if ((element != null) && (element != DELETED) && (b.find(element) < 0)) {
+                remaining[remainingCount++] = element;
+            }
+        }
+
+        OAHashSet<E> result = withExactCapacity(remainingCount, a.loadFactor);
+        for (int i = 0; i < remainingCount; i++) {
+            result.addInternal((E) remaining[i]);
+        }
+
+        return result;
+    }
+
+    public static int intersectionSize(OAHashSet<?> a, OAHashSet<?> b) {
+
+        OAHashSet<?> smaller = (a.size <= b.size) ? a : b;
+        OAHashSet<?> larger = (smaller == a) ? b : a;
+
+        int commonCount = 0;
+        for (Object element : smaller.table) {
+            if ((element != null) && (element != DELETED) && (larger.find(element) >= 0)) {
+                ++commonCount;
+            }
+        }
+
+        return commonCount;
+    }
+
+    /**
+     * returns a set sized so that expectedSize elements can be added without growing the table
+     */
+    public static <E> OAHashSet<E> withExpectedSize(int expectedSize) {
+
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can not be negative but was " + expectedSize);
+        }
+
+        return withExactCapacity(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    private static <E> OAHashSet<E> withExactCapacity(int expectedSize, double loadFactor) {
+        return new OAHashSet<>(GrowthPolicy.exactCapacity(expectedSize, loadFactor), loadFactor);
+    }
+
     @Override
     public boolean equals(Object o) {
 
@@ -101,16 +238,63 @@ public class OAHashSet<E> implements Set<E> {
             return false;
         }
 
+        if (o instanceof OAHashSet) {
+            return equalsTable((OAHashSet<?>) o);
+        }
+
         return that.containsAll(this);
 
     }
 
+    private boolean equalsTable(OAHashSet<?> that) {
+
+        if (hashCodeTracked && that.hashCodeTracked && (hashCode() != that.hashCode())) {
+            return false;
+        }
+
+        for (Object element : table) {
+            if ((element != null) && (element != DELETED) && (that.find(element) < 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * when set, the set maintains its hash code as elements are added and removed, so that hashCode is constant
+     * time. Useful for sets that are themselves used as keys.
+     */
+    public void setTrackHashCode(boolean track) {
+        hashCodeTracked = track;
+        hashCodeStale = true;
+    }
+
+    public boolean isTrackHashCode() {
+        return hashCodeTracked;
+    }
+
     @Override
     public int hashCode() {
+
+        if (hashCodeTracked) {
+            if (hashCodeStale) {
+                trackedHashCode = computeHashCode();
+                hashCodeStale = false;
+            }
+            return trackedHashCode;
+        }
+
+        return computeHashCode();
+    }
+
+    private int computeHashCode() {
         int hashCode = 0;
 
-        for (E e : this) {
-            hashCode += e.hashCode();
+        for (Object element : table) {
+            if ((element != null) && (element != DELETED)) {
+                hashCode += element.hashCode();
+            }
         }
 
         return hashCode;
@@ -139,6 +323,21 @@ public class OAHashSet<E> implements Set<E> {
         return new OAHashSetIterator();
     }
 
+    @Override
+    public Spliterator<E> spliterator() {
+
+        return new OAHashSetSpliterator(0, -1, 0, 0);
+    }
+
+    /**
+     * returns a cursor positioned before the first element. Cursors do not fail fast; the set must only be modified
+     * through the cursor while it is in use.
+     */
+    public Cursor cursor() {
+
+        return new Cursor();
+    }
+
     @Override
     public Object[] toArray() {
 
@@ -176,8 +375,6 @@ public class OAHashSet<E> implements Set<E> {
     @Override
     public boolean add(E e) {
 
-        ++revision;
-
         if (e == null) {
             throw new NullPointerException("add of null value is not allowed");
         }
@@ -189,28 +386,22 @@ public class OAHashSet<E> implements Set<E> {
             return false;
         }
 
-        if (!resizeIfNeeded(1)) {
-            foundIndex = -1 - foundIndex;
-            table[foundIndex] = e;
-            ++size;
-            return true;
-        }
-
-        addInternal(e);
+        ++revision;
+        insertAt(foundIndex, e);
         return true;
     }
 
     @Override
     public boolean remove(Object o) {
-        ++revision;
         int foundIndex = find(o);
 
         if (foundIndex < 0) {
             return false;
         }
 
-        table[foundIndex] = DELETED;
-        --size;
+        ++revision;
+        removeAt(foundIndex);
+        shrinkIfNeeded();
         return true;
     }
 
@@ -226,6 +417,19 @@ public class OAHashSet<E> implements Set<E> {
         return true;
     }
 
+    public boolean containsAll(Object[] elements) {
+
+        int[] probeIndices = new int[LOOKUP_BATCH];
+        int[] startIndices = new int[LOOKUP_BATCH];
+        for (int from = 0; from < elements.length; from += LOOKUP_BATCH) {
+            if (!findAll(elements, from, Math.min(LOOKUP_BATCH, elements.length - from), probeIndices, startIndices)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public boolean addAll(Collection<? extends E> c) {
 
@@ -235,13 +439,48 @@ public class OAHashSet<E> implements Set<E> {
             return false;
         }
 
+        if (c instanceof OAHashSet) {
+            return addAllFrom((OAHashSet<? extends E>) c);
+        }
+
         resizeIfNeeded(c.size());
 
         boolean modified = false;
         for (E e : c) {
-            if (!contains(e)) {
-                add(e);
-                modified = true;
+            modified |= add(e);
+        }
+
+        return modified;
+    }
+
+    private boolean addAllFrom(OAHashSet<? extends E> that) {
+
+        if (that == this) {
+            return false;
+        }
+
+        Object[] thatTable = that.table;
+        // only adopt the other table when that neither shrinks this one nor takes on a differently configured layout
+        if ((size == 0) && (thatTable.length >= table.length) && (that.loadFactor == loadFactor) && (that.growthPolicy == growthPolicy)) {
+            table = thatTable.clone();
+            size = that.size;
+            deletedCount = that.deletedCount;
+            hashSeed = that.hashSeed;
+            strongHashKeys = that.strongHashKeys;
+            hashCodeStale = true;
+            return true;
+        }
+
+        resizeIfNeeded(that.size);
+
+        boolean modified = false;
+        for (Object element : thatTable) {
+            if ((element != null) && (element != DELETED)) {
+                int foundIndex = find(element);
+                if (foundIndex < 0) {
+                    insertAt(foundIndex, (E) element);
+                    modified = true;
+                }
             }
         }
 
@@ -251,35 +490,163 @@ public class OAHashSet<E> implements Set<E> {
     @Override
     public boolean retainAll(Collection<?> c) {
 
-        boolean modified = false;
-        Iterator<E> it = iterator();
-        while (it.hasNext()) {
-            E e = it.next();
-            if (!c.contains(e)) {
-                it.remove();
-                modified = true;
+        int removedCount = 0;
+        for (int i = 0; i < table.length; i++) {
+            Object element = table[i];
+            if ((element != null) && (element != DELETED) && !c.contains(element)) {
+                removeAt(i);
+                ++removedCount;
             }
         }
 
-        return modified;
+        return compactAfterRemoving(removedCount);
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
 
-        boolean modified = false;
-        for (Object e : c) {
-            modified |= remove(e);
+        int removedCount = 0;
+        if (c.size() < size) {
+            for (Object e : c) {
+                int foundIndex = find(e);
+                if (foundIndex >= 0) {
+                    removeAt(foundIndex);
+                    ++removedCount;
+                }
+            }
+        } else {
+            for (int i = 0; i < table.length; i++) {
+                Object element = table[i];
+                if ((element != null) && (element != DELETED) && c.contains(element)) {
+                    removeAt(i);
+                    ++removedCount;
+                }
+            }
         }
 
-        return modified;
+        return compactAfterRemoving(removedCount);
     }
 
     @Override
     public void clear() {
         ++revision;
-        Arrays.fill(table, null);
+        int peak = Math.max(peakSize, size);
+        peakSize = 0;
+        if ((lowWaterMark > 0) && (table.length > DEFAULT_CAPACITY)) {
+            table = EMPTY_TABLE;
+        } else if ((table.length >= CLEAR_REALLOCATION_MIN_LENGTH) && (table.length > (lengthFor(peak) << 2))) {
+            // the table is far larger than recent use needs, so a fresh smaller one is cheaper than filling this one
+            table = new Object[lengthFor(peak << 1)];
+        } else {
+            Arrays.fill(table, null);
+        }
         size = 0;
+        deletedCount = 0;
+        trackedHashCode = 0;
+        hashCodeStale = false;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+
+        if (action == null) {
+            throw new NullPointerException("forEach of null action is not allowed");
+        }
+
+        int expectedRevision = revision;
+        Object[] t = table;
+        for (Object element : t) {
+            if ((element != null) && (element != DELETED)) {
+                action.accept((E) element);
+            }
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+
+        if (filter == null) {
+            throw new NullPointerException("removeIf of null filter is not allowed");
+        }
+
+        int expectedRevision = revision;
+        Object[] t = table;
+        int removedCount = 0;
+        for (int i = 0; i < t.length; i++) {
+            Object element = t[i];
+            if ((element != null) && (element != DELETED) && filter.test((E) element)) {
+                if (expectedRevision != revision) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(i);
+                ++removedCount;
+            }
+        }
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        return compactAfterRemoving(removedCount);
+    }
+
+    public void forEach(long parallelismThreshold, Consumer<? super E> action) {
+
+        if (action == null) {
+            throw new NullPointerException("forEach of null action is not allowed");
+        }
+
+        int expectedRevision = revision;
+        Object[] t = table;
+        new OAHashSetForEachTask(t, 0, t.length, leafSlots(parallelismThreshold), action).invoke();
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    public <U> U search(long parallelismThreshold, Function<? super E, ? extends U> searchFunction) {
+
+        if (searchFunction == null) {
+            throw new NullPointerException("search of null search function is not allowed");
+        }
+
+        int expectedRevision = revision;
+        Object[] t = table;
+        AtomicReference<U> result = new AtomicReference<>();
+        new OAHashSetSearchTask<>(t, 0, t.length, leafSlots(parallelismThreshold), searchFunction, result).invoke();
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        return result.get();
+    }
+
+    public <U> U reduce(long parallelismThreshold, Function<? super E, ? extends U> transformer, BiFunction<? super U, ? super U, ? extends U> reducer) {
+
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException("reduce of null transformer or reducer is not allowed");
+        }
+
+        int expectedRevision = revision;
+        Object[] t = table;
+        U result = new OAHashSetReduceTask<>(t, 0, t.length, leafSlots(parallelismThreshold), transformer, reducer).invoke();
+
+        if (expectedRevision != revision) {
+            throw new ConcurrentModificationException();
+        }
+
+        return result;
+    }
+
+    public E reduce(long parallelismThreshold, BiFunction<? super E, ? super E, ? extends E> reducer) {
+
+        return reduce(parallelismThreshold, e -> e, reducer);
     }
 
     @Override
@@ -298,12 +665,73 @@ public class OAHashSet<E> implements Set<E> {
         return sb.toString();
     }
 
+    private int homeIndex(Object e, int tableLength) {
+        if (tableLength <= TINY_CAPACITY) {
+            return 0;
+        }
+        return (hash(e) & Integer.MAX_VALUE) % tableLength;
+    }
+
+    private int hash(Object e) {
+        if ((strongHashKeys != null) && (e instanceof String)) {
+            return KeyedHash.sipHash((String) e, strongHashKeys[0], strongHashKeys[1]);
+        }
+        return KeyedHash.mix(e.hashCode(), hashSeed);
+    }
+
+    /**
+     * returns whether all count elements starting at elements[from] are present. The probes of all the elements are
+     * advanced in lock step, so that their cache misses overlap rather than being taken one after the other.
+     */
+    private boolean findAll(Object[] elements, int from, int count, int[] probeIndices, int[] startIndices) {
+        Object[] t = table;
+        for (int k = 0; k < count; k++) {
+            Object e = elements[from + k];
+            if ((e == null) || (t.length == 0)) {
+                return false;
+            }
+            int start = homeIndex(e, t.length);
+            probeIndices[k] = start;
+            startIndices[k] = start;
+        }
+
+        int active = count;
+        while (active > 0) {
+            for (int k = 0; k < count; k++) {
+                if (startIndices[k] < 0) {
+                    continue;
+                }
+
+                int i = probeIndices[k];
+                Object tableItem = t[i];
+                if (tableItem == null) {
+                    return false;
+                }
+                if ((tableItem != DELETED) && elements[from + k].equals(tableItem)) {
+                    startIndices[k] = -1;
+                    --active;
+                    continue;
+                }
+
+                if (++i == t.length) {
+                    i = 0;
+                }
+                if (i == startIndices[k]) {
+                    return false;
+                }
+                probeIndices[k] = i;
+            }
+        }
+
+        return true;
+    }
+
     private int find(Object e) {
         if ((e == null) || (table.length == 0)) {
             return Integer.MIN_VALUE;
         }
 
-        int start = e.hashCode() % table.length;
+        int start = homeIndex(e, table.length);
         for (int i = start; i < table.length; i++) {
             if (table[i] == null) {
                 return -i - 1;
@@ -329,18 +757,37 @@ public class OAHashSet<E> implements Set<E> {
 
     private boolean resizeIfNeeded(int expectedAdditionalItems) {
 
-        double fillPercentage = 1.0 - ((table.length - (size + expectedAdditionalItems)) / ((double) table.length));
+        int requiredSize = size + expectedAdditionalItems;
+        if (table.length <= TINY_CAPACITY) {
+            if (requiredSize <= table.length) {
+                return false;
+            }
+        } else {
+            double fillPercentage = 1.0 - ((table.length - requiredSize) / ((double) table.length));
 
-        if ((fillPercentage < loadFactor) && (table.length > size)) {
-            return false;
+            if ((fillPercentage < loadFactor) && (table.length > size)) {
+                return false;
+            }
         }
 
-        int newLength = (int) (table.length + expectedAdditionalItems + (table.length * loadFactor));
-        if (newLength <= (table.length + MIN_EXPANSION)) {
-            newLength += MIN_EXPANSION;
+        int newLength;
+        if ((requiredSize <= TINY_CAPACITY) && (table.length < TINY_CAPACITY)) {
+            newLength = TINY_CAPACITY;
+        } else if (table.length <= TINY_CAPACITY) {
+            newLength = Math.max(DEFAULT_CAPACITY, GrowthPolicy.exactCapacity(requiredSize, loadFactor));
+        } else {
+            newLength = Math.max(growthPolicy.nextCapacity(table.length, requiredSize, loadFactor), GrowthPolicy.exactCapacity(requiredSize, loadFactor));
         }
 
+        rehash(newLength);
+        return true;
+    }
+
+    private void rehash(int newLength) {
+
+        long start = System.nanoTime();
         size = 0;
+        deletedCount = 0;
         Object[] oldTable = table;
         table = new Object[newLength];
 
@@ -350,19 +797,194 @@ public class OAHashSet<E> implements Set<E> {
             }
         }
 
+        ++resizeCount;
+        lastResizeNanos = System.nanoTime() - start;
+    }
+
+    private int lengthFor(int count) {
+        if (count <= TINY_CAPACITY) {
+            return TINY_CAPACITY;
+        }
+        return Math.max(MIN_EXPANSION, (int) (count / loadFactor) + 1);
+    }
+
+    /**
+     * finishes a bulk removal, shrinking the table if it fell below the low water mark, and otherwise rebuilding it at
+     * its current capacity without tombstones once they and the remaining elements fill more than the load factor
+     * allows.
+     */
+    private boolean compactAfterRemoving(int removedCount) {
+
+        if (removedCount == 0) {
+            return false;
+        }
+
+        ++revision;
+        shrinkIfNeeded();
+        if (Compaction.isNeeded(size, deletedCount, table.length, loadFactor)) {
+            rehash(table.length);
+        }
         return true;
     }
 
+    private void shrinkIfNeeded() {
+
+        if ((lowWaterMark > 0) && (table.length > DEFAULT_CAPACITY) && (size < (lowWaterMark * table.length))) {
+            rehash(Math.max(DEFAULT_CAPACITY, lengthFor(size << 1)));
+        }
+    }
+
+    /**
+     * shrinks the table to the smallest one that holds the current elements at the load factor, or back to the
+     * shared empty table when there are none
+     */
+    public void trimToSize() {
+        ++revision;
+        if (size == 0) {
+            table = EMPTY_TABLE;
+            deletedCount = 0;
+            return;
+        }
+        rehash(lengthFor(size));
+    }
+
+    /**
+     * rebuilds the table at its current capacity, dropping the tombstones left by removals
+     */
+    public void compact() {
+        ++revision;
+        rehash(table.length);
+    }
+
+    /**
+     * when set above 0, removing elements until fewer than this fraction of the slots are used shrinks the table to
+     * twice what the remaining elements need. Must be less than half the load factor, so that the shrunken table is
+     * not grown again by the next add.
+     */
+    public void setLowWaterMark(double lowWaterMarkFraction) {
+
+        if ((lowWaterMarkFraction < 0) || (lowWaterMarkFraction >= (loadFactor / 2))) {
+            throw new IllegalArgumentException("Low water mark must be at least 0 and less than half the load factor, but was " + lowWaterMarkFraction);
+        }
+
+        lowWaterMark = lowWaterMarkFraction;
+    }
+
+    public double getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    public void setGrowthPolicy(GrowthPolicy policy) {
+
+        if (policy == null) {
+            throw new NullPointerException("null growth policy is not allowed");
+        }
+
+        growthPolicy = policy;
+    }
+
+    public GrowthPolicy getGrowthPolicy() {
+        return growthPolicy;
+    }
+
+    /**
+     * returns a snapshot of the table's occupancy and probe lengths. It only reads the table, so it may be called from
+     * a monitoring thread, but the numbers are then approximate if the set is being written at the same time.
+     */
+    public OAHashStats stats() {
+
+        Object[] t = table;
+        int deleted = 0;
+        int[] histogram = new int[8];
+        for (int i = 0; i < t.length; i++) {
+            Object element = t[i];
+            if (element == DELETED) {
+                ++deleted;
+            } else if (element != null) {
+                histogram = OAHashStats.record(histogram, probeLength(element, i, t.length));
+            }
+        }
+
+        return new OAHashStats(t.length, size, deleted, histogram, resizeCount, lastResizeNanos);
+    }
+
+    /**
+     * registers the stats of this set with the platform MBean server, returning the name they were registered under.
+     * The server holds on to the set until that name is unregistered. The bean reads the table from the JMX thread,
+     * so its values race with writes to the set; see OAHashStatsMXBean.
+     */
+    public ObjectName registerMBean(String name) {
+        return OAHashStats.register("OAHashSet", name, this::stats);
+    }
+
+    private int probeLength(Object e, int index, int tableLength) {
+        return (((index - homeIndex(e, tableLength)) + tableLength) % tableLength) + 1;
+    }
+
+    private int leafSlots(long parallelismThreshold) {
+
+        if ((parallelismThreshold == Long.MAX_VALUE) || (size <= 1) || (size < parallelismThreshold)) {
+            return table.length;
+        }
+
+        int maxBatches = ForkJoinPool.getCommonPoolParallelism() << 2;
+        long batches = (parallelismThreshold <= 0) ? maxBatches : Math.min(size / parallelismThreshold, maxBatches);
+        if (batches <= 1) {
+            return table.length;
+        }
+
+        return Math.max(1, (int) (table.length / batches));
+    }
+
+    private void insertAt(int foundIndex, E e) {
+
+        if (hashCodeTracked) {
+            trackedHashCode += e.hashCode();
+        }
+
+        if (resizeIfNeeded(1) || (foundIndex == Integer.MIN_VALUE)) {
+            addInternal(e);
+            return;
+        }
+
+        int index = -1 - foundIndex;
+        table[index] = e;
+        ++size;
+
+        if ((strongHashKeys == null) && (e instanceof String) && (probeLength(e, index, table.length) > FLOODING_PROBE_LENGTH)) {
+            strongHashKeys = KeyedHash.newKeys();
+            rehash(table.length);
+        }
+    }
+
+    private void removeAt(int foundIndex) {
+
+        if (hashCodeTracked) {
+            trackedHashCode -= table[foundIndex].hashCode();
+        }
+
+        if (size > peakSize) {
+            peakSize = size;
+        }
+
+        table[foundIndex] = DELETED;
+        --size;
+        ++deletedCount;
+    }
+
     private void addInternal(E e) {
 
         if (e == null) {
             throw new NullPointerException("add of null value is not allowed");
         }
 
-        int start = e.hashCode() % table.length;
+        int start = homeIndex(e, table.length);
 
         for (int i = start; i < table.length; i++) {
             if ((table[i] == null) || (table[i] == DELETED)) {
+                if (table[i] == DELETED) {
+                    --deletedCount;
+                }
                 table[i] = e;
                 ++size;
                 return;
@@ -371,6 +993,9 @@ public class OAHashSet<E> implements Set<E> {
 
         for (int i = 0; i < start; i++) {
             if ((table[i] == null) || (table[i] == DELETED)) {
+                if (table[i] == DELETED) {
+                    --deletedCount;
+                }
                 table[i] = e;
                 ++size;
                 return;
@@ -380,6 +1005,48 @@ public class OAHashSet<E> implements Set<E> {
         throw new RuntimeException("Unable to add element {" + e + "}");
     }
 
+    public final class Cursor {
+
+        private int tableIndex = -1;
+
+        private Cursor() {
+        }
+
+        public boolean advance() {
+            Object[] t = table;
+            int i = tableIndex + 1;
+            while (i < t.length) {
+                Object element = t[i];
+                if ((element != null) && (element != DELETED)) {
+                    tableIndex = i;
+                    return true;
+                }
+                i++;
+            }
+
+            tableIndex = t.length;
+            return false;
+        }
+
+        public E element() {
+            return (E) table[checkedIndex()];
+        }
+
+        public void remove() {
+            int index = checkedIndex();
+            ++revision;
+            removeAt(index);
+        }
+
+        private int checkedIndex() {
+            if ((tableIndex < 0) || (tableIndex >= table.length) || (table[tableIndex] == DELETED)) {
+                throw new IllegalStateException();
+            }
+
+            return tableIndex;
+        }
+    }
+
     private final class OAHashSetIterator implements Iterator<E> {
 
         private int itRevision = revision;
@@ -431,8 +1098,7 @@ public class OAHashSet<E> implements Set<E> {
                 throw new IllegalStateException();
             }
 
-            table[activeIndex] = DELETED;
-            --size;
+            removeAt(activeIndex);
             tableIndex = activeIndex - 1;
             activeIndex = -1;
             primed = false;
@@ -457,4 +1123,241 @@ public class OAHashSet<E> implements Set<E> {
             }
         }
     }
+
+    private final class OAHashSetSpliterator implements Spliterator<E> {
+
+        private int tableIndex; // next slot to visit
+        private int fence; // one past the last slot to visit, or -1 until first use
+        private int est; // size estimate
+        private int expectedRevision;
+
+        public OAHashSetSpliterator(int origin, int fence, int est, int expectedRevision) {
+            tableIndex = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedRevision = expectedRevision;
+        }
+
+        private int getFence() {
+            if (fence < 0) {
+                fence = table.length;
+                est = size;
+                expectedRevision = revision;
+            }
+            return fence;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int hi = getFence();
+            int lo = tableIndex;
+            int mid = (lo + hi) >>> 1;
+            if (lo >= mid) {
+                return null;
+            }
+
+            tableIndex = mid;
+            est >>>= 1;
+            return new OAHashSetSpliterator(lo, mid, est, expectedRevision);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+
+            if (action == null) {
+                throw new NullPointerException("tryAdvance of null action is not allowed");
+            }
+
+            int hi = getFence();
+            Object[] t = table;
+            while (tableIndex < hi) {
+                Object element = t[tableIndex++];
+                if ((element != null) && (element != DELETED)) {
+                    action.accept((E) element);
+                    if (expectedRevision != revision) {
+                        throw new ConcurrentModificationException();
+                    }
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+
+            if (action == null) {
+                throw new NullPointerException("forEachRemaining of null action is not allowed");
+            }
+
+            int hi = getFence();
+            Object[] t = table;
+            for (int i = tableIndex; i < hi; i++) {
+                Object element = t[i];
+                if ((element != null) && (element != DELETED)) {
+                    action.accept((E) element);
+                }
+            }
+            tableIndex = hi;
+
+            if (expectedRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return (((fence < 0) || (est == size)) ? Spliterator.SIZED : 0) | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    private abstract class OAHashSetBulkTask<U> extends RecursiveTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object[] taskTable;
+        final int lo;
+        final int hi;
+        final int leafSlots;
+
+        OAHashSetBulkTask(Object[] t, int lo, int hi, int leafSlots) {
+            taskTable = t;
+            this.lo = lo;
+            this.hi = hi;
+            this.leafSlots = leafSlots;
+        }
+
+        abstract OAHashSetBulkTask<U> split(int splitLo, int splitHi);
+
+        abstract U scan();
+
+        U combine(U left, U right) {
+            return null;
+        }
+
+        @Override
+        protected U compute() {
+            if ((hi - lo) <= leafSlots) {
+                return scan();
+            }
+
+            int mid = (lo + hi) >>> 1;
+            OAHashSetBulkTask<U> right = split(mid, hi);
+            right.fork();
+            U leftResult = split(lo, mid).compute();
+            return combine(leftResult, right.join());
+        }
+    }
+
+    private final class OAHashSetForEachTask extends OAHashSetBulkTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Consumer<? super E> action;
+
+        OAHashSetForEachTask(Object[] t, int lo, int hi, int leafSlots, Consumer<? super E> action) {
+            super(t, lo, hi, leafSlots);
+            this.action = action;
+        }
+
+        @Override
+        OAHashSetBulkTask<Void> split(int splitLo, int splitHi) {
+            return new OAHashSetForEachTask(taskTable, splitLo, splitHi, leafSlots, action);
+        }
+
+        @Override
+        Void scan() {
+            for (int i = lo; i < hi; i++) {
+                Object element = taskTable[i];
+                if ((element != null) && (element != DELETED)) {
+                    action.accept((E) element);
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class OAHashSetSearchTask<U> extends OAHashSetBulkTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Function<? super E, ? extends U> searchFunction;
+        private final AtomicReference<U> result;
+
+        OAHashSetSearchTask(Object[] t, int lo, int hi, int leafSlots, Function<? super E, ? extends U> searchFunction, AtomicReference<U> result) {
+            super(t, lo, hi, leafSlots);
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        OAHashSetBulkTask<U> split(int splitLo, int splitHi) {
+            return new OAHashSetSearchTask<>(taskTable, splitLo, splitHi, leafSlots, searchFunction, result);
+        }
+
+        @Override
+        U scan() {
+            for (int i = lo; (i < hi) && (result.get() == null); i++) {
+                Object element = taskTable[i];
+                if ((element != null) && (element != DELETED)) {
+                    U u = searchFunction.apply((E) element);
+                    if (u != null) {
+                        result.compareAndSet(null, u);
+                        break;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class OAHashSetReduceTask<U> extends OAHashSetBulkTask<U> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Function<? super E, ? extends U> transformer;
+        private final BiFunction<? super U, ? super U, ? extends U> reducer;
+
+        OAHashSetReduceTask(Object[] t, int lo, int hi, int leafSlots, Function<? super E, ? extends U> transformer,
+                BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(t, lo, hi, leafSlots);
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+
+        @Override
+        OAHashSetBulkTask<U> split(int splitLo, int splitHi) {
+            return new OAHashSetReduceTask<>(taskTable, splitLo, splitHi, leafSlots, transformer, reducer);
+        }
+
+        @Override
+        U scan() {
+            U r = null;
+            for (int i = lo; i < hi; i++) {
+                Object element = taskTable[i];
+                if ((element != null) && (element != DELETED)) {
+                    r = combine(r, transformer.apply((E) element));
+                }
+            }
+            return r;
+        }
+
+        @Override
+        U combine(U left, U right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            return reducer.apply(left, right);
+        }
+    }
 }
@@ -0,0 +1,236 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * a snapshot of the table of an OAHashMap or OAHashSet, for spotting poor hash functions and tombstone buildup. The
+ * probe length of an entry is the number of slots looked at to find it, so 1 means it sits in its home slot.
+ */
+public final class OAHashStats implements OAHashStatsMXBean {
+
+    private static final String DOMAIN = "com.mebigfatguy.oahash";
+    private static final long SNAPSHOT_REUSE_NANOS = 1_000_000_000L; // how long the registered bean reuses a snapshot
+
+    private final int capacity;
+    private final int size;
+    private final int deletedCount;
+    private final int[] probeLengthHistogram; // index i counts the entries with a probe length of i + 1
+    private final long resizeCount;
+    private final long lastResizeNanos;
+
+    OAHashStats(int capacity, int size, int deletedCount, int[] probeLengthHistogram, long resizeCount, long lastResizeNanos) {
+        this.capacity = capacity;
+        this.size = size;
+        this.deletedCount = deletedCount;
+        int used = probeLengthHistogram.length;
+        while ((used > 0) && (probeLengthHistogram[used - 1] == 0)) {
+            --used;
+        }
+        this.probeLengthHistogram = Arrays.copyOf(probeLengthHistogram, used);
+        this.resizeCount = resizeCount;
+        this.lastResizeNanos = lastResizeNanos;
+    }
+
+    /**
+     * counts one more entry of the given probe length, returning the histogram, grown if need be
+     */
+    static int[] record(int[] histogram, int probeLength) {
+        int[] h = histogram;
+        if (probeLength > h.length) {
+            h = Arrays.copyOf(h, Math.max(probeLength, h.length << 1));
+        }
+        ++h[probeLength - 1];
+        return h;
+    }
+
+    /**
+     * registers a bean reading stats from source with the platform MBean server, as
+     * com.mebigfatguy.oahash:type=type,name=name
+     */
+    static ObjectName register(String type, String name, Supplier<OAHashStats> source) {
+
+        if (name == null) {
+            throw new NullPointerException("null name is not allowed");
+        }
+
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new LiveStats(source), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Can not register stats as " + name, e);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * returns the fraction of the slots holding entries
+     */
+    @Override
+    public double getLoad() {
+        return (capacity == 0) ? 0.0 : ((double) size / capacity);
+    }
+
+    /**
+     * returns the fraction of the slots holding tombstones left by removals
+     */
+    @Override
+    public double getTombstoneRatio() {
+        return (capacity == 0) ? 0.0 : ((double) deletedCount / capacity);
+    }
+
+    /**
+     * returns the number of entries by probe length, where index i counts the entries with a probe length of i + 1
+     */
+    @Override
+    public int[] getProbeLengthHistogram() {
+        return probeLengthHistogram.clone();
+    }
+
+    @Override
+    public double getAverageProbeLength() {
+        long entries = 0;
+        long probes = 0;
+        for (int i = 0; i < probeLengthHistogram.length; i++) {
+            entries += probeLengthHistogram[i];
+            probes += (long) probeLengthHistogram[i] * (i + 1);
+        }
+        return (entries == 0) ? 0.0 : ((double) probes / entries);
+    }
+
+    @Override
+    public int getMaxProbeLength() {
+        return probeLengthHistogram.length;
+    }
+
+    /**
+     * returns the number of times the table has been rebuilt, whether to grow, shrink or compact it
+     */
+    @Override
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    /**
+     * returns how long the last rebuild of the table took, or for an incremental resize, how long starting it took
+     */
+    @Override
+    public long getLastResizeNanos() {
+        return lastResizeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "OAHashStats[capacity=" + capacity + ", size=" + size + ", deletedCount=" + deletedCount + ", averageProbeLength="
+                + getAverageProbeLength() + ", maxProbeLength=" + getMaxProbeLength() + ", resizeCount=" + resizeCount
+                + ", lastResizeNanos=" + lastResizeNanos + "]";
+    }
+
+    private static final class LiveStats implements OAHashStatsMXBean {
+
+        private final Supplier<OAHashStats> source;
+        private volatile OAHashStats snapshot;
+        private volatile long snapshotNanos;
+
+        LiveStats(Supplier<OAHashStats> source) {
+            this.source = source;
+        }
+
+        private OAHashStats current() {
+            long now = System.nanoTime();
+            OAHashStats s = snapshot;
+            if ((s == null) || ((now - snapshotNanos) > SNAPSHOT_REUSE_NANOS)) {
+                s = source.get();
+                snapshotNanos = now;
+                snapshot = s;
+            }
+            return s;
+        }
+
+        @Override
+        public int getCapacity() {
+            return current().getCapacity();
+        }
+
+        @Override
+        public int getSize() {
+            return current().getSize();
+        }
+
+        @Override
+        public int getDeletedCount() {
+            return current().getDeletedCount();
+        }
+
+        @Override
+        public double getLoad() {
+            return current().getLoad();
+        }
+
+        @Override
+        public double getTombstoneRatio() {
+            return current().getTombstoneRatio();
+        }
+
+        @Override
+        public int[] getProbeLengthHistogram() {
+            return current().getProbeLengthHistogram();
+        }
+
+        @Override
+        public double getAverageProbeLength() {
+            return current().getAverageProbeLength();
+        }
+
+        @Override
+        public int getMaxProbeLength() {
+            return current().getMaxProbeLength();
+        }
+
+        @Override
+        public long getResizeCount() {
+            return current().getResizeCount();
+        }
+
+        @Override
+        public long getLastResizeNanos() {
+            return current().getLastResizeNanos();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+/**
+ * the management interface under which registerMBean exposes the stats of an OAHashMap or OAHashSet. Attributes read
+ * within a second of each other come from the same snapshot, so a console polling every attribute scans the table
+ * once. The scan runs on the JMX thread without synchronization, so while the collection is being written the values
+ * are approximate.
+ */
+public interface OAHashStatsMXBean {
+
+    int getCapacity();
+
+    int getSize();
+
+    int getDeletedCount();
+
+    double getLoad();
+
+    double getTombstoneRatio();
+
+    int[] getProbeLengthHistogram();
+
+    double getAverageProbeLength();
+
+    int getMaxProbeLength();
+
+    long getResizeCount();
+
+    long getLastResizeNanos();
+}
@@ -0,0 +1,958 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * an open addressing map that iterates in insertion order, or in access order from least to most recently used.
+ * The order is kept in two int arrays of slot numbers alongside an OAHashMap style table, so there are no per entry
+ * objects, and iteration only visits live entries. Override removeEldestEntry to build a bounded, LRU cache.
+ */
+public class OALinkedHashMap<K, V> implements Map<K, V> {
+
+    private static final Object DELETED = KeySlots.DELETED;
+
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.70;
+
+    private Object[] table; // even indices are the key, the following odd index is the value
+    private int[] before; // by slot, the slot of the previous entry in iteration order, or NONE
+    private int[] after; // by slot, the slot of the next entry in iteration order, or NONE
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private int usedSlots; // live and deleted slots, which both lengthen probes
+    private final double loadFactor;
+    private final boolean accessOrder;
+    private final int hashSeed = KeyedHash.newSeed();
+    private long[] strongHashKeys; // SipHash keys for String keys, once probe lengths suggest the keys were chosen to collide
+    private int revision;
+    private final OALinkedMapEntry eldest = new OALinkedMapEntry(NONE);
+    private Set<K> keySet;
+    private Collection<V> values;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    public OALinkedHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OALinkedHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public OALinkedHashMap(int initialCapacity, double initialLoadFactor) {
+        this(initialCapacity, initialLoadFactor, false);
+    }
+
+    /**
+     * when accessOrder is set, get, put and the other lookups that find a key move it to the end of the iteration
+     * order, so the first entry is the least recently used one.
+     */
+    public OALinkedHashMap(int initialCapacity, double initialLoadFactor, boolean accessOrder) {
+
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity can not be negative but was " + initialCapacity);
+        }
+
+        if ((initialLoadFactor <= 0) || (initialLoadFactor >= 1)) {
+            throw new IllegalArgumentException("Initial Load Factor must be between 0 and 1 exclusively, but was " + initialLoadFactor);
+        }
+
+        loadFactor = initialLoadFactor;
+        this.accessOrder = accessOrder;
+        allocate(GrowthPolicy.exactCapacity(initialCapacity, initialLoadFactor));
+    }
+
+    public OALinkedHashMap(Map<K, V> source) {
+        this((source == null) ? DEFAULT_CAPACITY : source.size());
+
+        if (source != null) {
+            putAll(source);
+        }
+    }
+
+    /**
+     * called after each insert with the first entry in iteration order; returning true removes it. The entry is
+     * reused between calls, and is only valid for the duration of the call.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldestEntry) {
+        return false;
+    }
+
+    public boolean isAccessOrder() {
+        return accessOrder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+
+        for (int slot = head; slot != NONE; slot = after[slot]) {
+            if (Objects.equals(value, table[(slot << 1) + 1])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        touch(slot);
+        return (V) table[(slot << 1) + 1];
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+
+        touch(slot);
+        return (V) table[(slot << 1) + 1];
+    }
+
+    @Override
+    public V put(K key, V value) {
+
+        if (key == null) {
+            throw new NullPointerException("put of null key is not allowed {null, " + value + ")");
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            int valueIndex = (slot << 1) + 1;
+            V oldValue = (V) table[valueIndex];
+            table[valueIndex] = value;
+            touch(slot);
+            return oldValue;
+        }
+
+        insert(slot, key, value);
+        return null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+
+        if (key == null) {
+            throw new NullPointerException("putIfAbsent of null key is not allowed {null, " + value + ")");
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            int valueIndex = (slot << 1) + 1;
+            V oldValue = (V) table[valueIndex];
+            if (oldValue == null) {
+                table[valueIndex] = value;
+            }
+            touch(slot);
+            return oldValue;
+        }
+
+        insert(slot, key, value);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        ++revision;
+        return removeSlot(slot);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        ++revision;
+        Arrays.fill(table, null);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        usedSlots = 0;
+    }
+
+    @Override
+    public Set<K> keySet() {
+
+        if (keySet == null) {
+            keySet = new OALinkedKeySet();
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<V> values() {
+
+        if (values == null) {
+            values = new OALinkedValues();
+        }
+        return values;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+
+        if (entrySet == null) {
+            entrySet = new OALinkedEntrySet();
+        }
+        return entrySet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (!(o instanceof Map)) {
+            return false;
+        }
+
+        Map<K, V> that = (Map<K, V>) o;
+        if (size != that.size()) {
+            return false;
+        }
+
+        for (int slot = head; slot != NONE; slot = after[slot]) {
+            Object key = table[slot << 1];
+            Object value = table[(slot << 1) + 1];
+            if (value == null) {
+                if ((that.get(key) != null) || !that.containsKey(key)) {
+                    return false;
+                }
+            } else if (!value.equals(that.get(key))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+
+        for (int slot = head; slot != NONE; slot = after[slot]) {
+            hashCode += table[slot << 1].hashCode() ^ Objects.hashCode(table[(slot << 1) + 1]);
+        }
+
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 16);
+        sb.append('{');
+
+        String separator = "";
+        for (int slot = head; slot != NONE; slot = after[slot]) {
+            sb.append(separator).append(table[slot << 1]).append('=').append(table[(slot << 1) + 1]);
+            separator = ", ";
+        }
+
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private void allocate(int capacity) {
+        table = new Object[capacity << 1];
+        before = new int[capacity];
+        after = new int[capacity];
+        head = NONE;
+        tail = NONE;
+        usedSlots = 0;
+    }
+
+    private int homeIndex(Object key) {
+        return KeySlots.homeIndex(KeySlots.hash(key, hashSeed, strongHashKeys), table.length);
+    }
+
+    /**
+     * returns the slot of key, or -1 - the slot it would be inserted at, or Integer.MIN_VALUE if key is absent and
+     * every slot is live. The insertion slot is the first deleted slot on the probe path, so that removals and inserts
+     * of new keys, as in a cache, reuse slots rather than fill the table with tombstones.
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return Integer.MIN_VALUE;
+        }
+
+        int foundIndex = KeySlots.probe(table, homeIndex(key), key, true);
+        if (foundIndex >= 0) {
+            return foundIndex >> 1;
+        }
+
+        return (foundIndex == Integer.MIN_VALUE) ? Integer.MIN_VALUE : (-1 - ((-1 - foundIndex) >> 1));
+    }
+
+    private void insert(int foundSlot, K key, V value) {
+
+        ++revision;
+        int slot = -1 - foundSlot;
+        if ((foundSlot == Integer.MIN_VALUE) || ((table[slot << 1] == null) && ((usedSlots + 1) > (after.length * loadFactor)))) {
+            rehash(nextCapacity());
+            slot = -1 - find(key);
+        }
+
+        int keyIndex = slot << 1;
+        if (table[keyIndex] == null) {
+            ++usedSlots;
+        }
+        table[keyIndex] = key;
+        table[keyIndex + 1] = value;
+        linkLast(slot);
+        ++size;
+
+        if ((strongHashKeys == null) && KeySlots.isFlooding(key, KeySlots.probeLength(keyIndex, homeIndex(key), table.length))) {
+            strongHashKeys = KeyedHash.newKeys();
+            rehash(after.length);
+        }
+
+        eldest.slot = head;
+        if (removeEldestEntry(eldest) && (size > 0)) {
+            ++revision;
+            removeSlot(head);
+        }
+    }
+
+    private V removeSlot(int slot) {
+
+        unlink(slot);
+        int keyIndex = slot << 1;
+        V value = (V) table[keyIndex + 1];
+        table[keyIndex] = DELETED;
+        table[keyIndex + 1] = null;
+        --size;
+        return value;
+    }
+
+    /**
+     * returns the capacity to rebuild a full table at. If it is mostly tombstones it keeps its capacity, otherwise it
+     * grows.
+     */
+    private int nextCapacity() {
+
+        int capacity = after.length;
+        if (size < (usedSlots >> 1)) {
+            return capacity;
+        }
+
+        return Math.max(GrowthPolicy.DEFAULT.nextCapacity(capacity, size + 1, loadFactor), GrowthPolicy.exactCapacity(size + 1, loadFactor));
+    }
+
+    /**
+     * rebuilds the table in iteration order
+     */
+    private void rehash(int newCapacity) {
+
+        Object[] oldTable = table;
+        int[] oldAfter = after;
+        int oldHead = head;
+        allocate(newCapacity);
+
+        for (int oldSlot = oldHead; oldSlot != NONE; oldSlot = oldAfter[oldSlot]) {
+            Object key = oldTable[oldSlot << 1];
+            int slot = -1 - find(key);
+            table[slot << 1] = key;
+            table[(slot << 1) + 1] = oldTable[(oldSlot << 1) + 1];
+            linkLast(slot);
+            ++usedSlots;
+        }
+    }
+
+    private void touch(int slot) {
+        if (accessOrder && (slot != tail)) {
+            ++revision;
+            unlink(slot);
+            linkLast(slot);
+        }
+    }
+
+    private void linkLast(int slot) {
+        before[slot] = tail;
+        after[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            after[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int prev = before[slot];
+        int next = after[slot];
+
+        if (prev == NONE) {
+            head = next;
+        } else {
+            after[prev] = next;
+        }
+
+        if (next == NONE) {
+            tail = prev;
+        } else {
+            before[next] = prev;
+        }
+    }
+
+    private abstract class OALinkedIterator<T> implements Iterator<T> {
+
+        private int itRevision = revision;
+        private int nextSlot = head;
+        private int activeSlot = NONE;
+
+        abstract T element(int slot);
+
+        @Override
+        public boolean hasNext() {
+            if (itRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+
+            return nextSlot != NONE;
+        }
+
+        @Override
+        public T next() {
+            if (itRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+
+            if (nextSlot == NONE) {
+                throw new NoSuchElementException();
+            }
+
+            activeSlot = nextSlot;
+            nextSlot = after[nextSlot];
+            return element(activeSlot);
+        }
+
+        @Override
+        public void remove() {
+            if (itRevision != revision) {
+                throw new ConcurrentModificationException();
+            }
+
+            if (activeSlot == NONE) {
+                throw new IllegalStateException();
+            }
+
+            removeSlot(activeSlot);
+            activeSlot = NONE;
+            ++itRevision;
+            ++revision;
+        }
+    }
+
+    /**
+     * removes, in iteration order, the entries whose slot passes test
+     */
+    private boolean removeSlots(IntPredicate test) {
+
+        boolean modified = false;
+        int slot = head;
+        while (slot != NONE) {
+            int next = after[slot];
+            if (test.test(slot)) {
+                removeSlot(slot);
+                modified = true;
+            }
+            slot = next;
+        }
+
+        if (modified) {
+            ++revision;
+        }
+        return modified;
+    }
+
+    private Object[] toArray(Collection<?> view) {
+
+        Object[] objects = new Object[size];
+
+        int i = 0;
+        for (Object o : view) {
+            objects[i++] = o;
+        }
+
+        return objects;
+    }
+
+    private <T> T[] toArray(Collection<?> view, T[] a) {
+
+        T[] objects;
+        if (a.length >= size) {
+            objects = a;
+        } else {
+            objects = (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+        }
+
+        int i = 0;
+        for (Object o : view) {
+            objects[i++] = (T) o;
+        }
+        if (i < objects.length) {
+            objects[i] = null;
+        }
+
+        return objects;
+    }
+
+    private String describe(Collection<?> view) {
+        StringBuilder sb = new StringBuilder(size * 16);
+        sb.append('[');
+
+        String separator = "";
+        for (Object o : view) {
+            sb.append(separator).append(o);
+            separator = ", ";
+        }
+
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private final class OALinkedKeySet implements Set<K> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return find(o) >= 0;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new OALinkedIterator<K>() {
+                @Override
+                K element(int slot) {
+                    return (K) table[slot << 1];
+                }
+            };
+        }
+
+        @Override
+        public Object[] toArray() {
+            return OALinkedHashMap.this.toArray(this);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return OALinkedHashMap.this.toArray(this, a);
+        }
+
+        @Override
+        public boolean add(K e) {
+            throw new UnsupportedOperationException("add");
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = find(o);
+            if (slot < 0) {
+                return false;
+            }
+
+            ++revision;
+            removeSlot(slot);
+            return true;
+        }
+
+        @Override
+        public boolean containsAll(Collection<?> c) {
+
+            for (Object k : c) {
+                if (find(k) < 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends K> c) {
+            throw new UnsupportedOperationException("addAll");
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            return removeSlots(slot -> !c.contains(table[slot << 1]));
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            return removeSlots(slot -> c.contains(table[slot << 1]));
+        }
+
+        @Override
+        public void clear() {
+            OALinkedHashMap.this.clear();
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = 0;
+            for (int slot = head; slot != NONE; slot = after[slot]) {
+                hashCode += table[slot << 1].hashCode();
+            }
+
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Set)) {
+                return false;
+            }
+
+            Set<?> that = (Set<?>) o;
+            if (size != that.size()) {
+                return false;
+            }
+
+            return containsAll(that);
+        }
+
+        @Override
+        public String toString() {
+            return describe(this);
+        }
+    }
+
+    private final class OALinkedValues implements Collection<V> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new OALinkedIterator<V>() {
+                @Override
+                V element(int slot) {
+                    return (V) table[(slot << 1) + 1];
+                }
+            };
+        }
+
+        @Override
+        public Object[] toArray() {
+            return OALinkedHashMap.this.toArray(this);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return OALinkedHashMap.this.toArray(this, a);
+        }
+
+        @Override
+        public boolean add(V e) {
+            throw new UnsupportedOperationException("add");
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            for (int slot = head; slot != NONE; slot = after[slot]) {
+                if (Objects.equals(o, table[(slot << 1) + 1])) {
+                    ++revision;
+                    removeSlot(slot);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public boolean containsAll(Collection<?> c) {
+
+            for (Object v : c) {
+                if (!containsValue(v)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends V> c) {
+            throw new UnsupportedOperationException("addAll");
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            return removeSlots(slot -> !c.contains(table[(slot << 1) + 1]));
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            return removeSlots(slot -> c.contains(table[(slot << 1) + 1]));
+        }
+
+        @Override
+        public void clear() {
+            OALinkedHashMap.this.clear();
+        }
+
+        @Override
+        public String toString() {
+            return describe(this);
+        }
+    }
+
+    private final class OALinkedEntrySet implements Set<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return slotOf(o) >= 0;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new OALinkedIterator<Map.Entry<K, V>>() {
+                @Override
+                Map.Entry<K, V> element(int slot) {
+                    return new OALinkedMapEntry(slot);
+                }
+            };
+        }
+
+        @Override
+        public Object[] toArray() {
+            return OALinkedHashMap.this.toArray(this);
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return OALinkedHashMap.this.toArray(this, a);
+        }
+
+        @Override
+        public boolean add(Map.Entry<K, V> e) {
+            throw new UnsupportedOperationException("add");
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = slotOf(o);
+            if (slot < 0) {
+                return false;
+            }
+
+            ++revision;
+            removeSlot(slot);
+            return true;
+        }
+
+        @Override
+        public boolean containsAll(Collection<?> c) {
+
+            for (Object e : c) {
+                if (slotOf(e) < 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Map.Entry<K, V>> c) {
+            throw new UnsupportedOperationException("addAll");
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            return removeSlots(slot -> !c.contains(new OALinkedMapEntry(slot)));
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            return removeSlots(slot -> c.contains(new OALinkedMapEntry(slot)));
+        }
+
+        @Override
+        public void clear() {
+            OALinkedHashMap.this.clear();
+        }
+
+        @Override
+        public int hashCode() {
+            return OALinkedHashMap.this.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Set)) {
+                return false;
+            }
+
+            Set<?> that = (Set<?>) o;
+            if (size != that.size()) {
+                return false;
+            }
+
+            return containsAll(that);
+        }
+
+        @Override
+        public String toString() {
+            return describe(this);
+        }
+
+        /**
+         * returns the slot of the entry o, if the map holds its key with its value, or a negative value
+         */
+        private int slotOf(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return NONE;
+            }
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            int slot = find(entry.getKey());
+            if ((slot < 0) || !Objects.equals(table[(slot << 1) + 1], entry.getValue())) {
+                return NONE;
+            }
+
+            return slot;
+        }
+    }
+
+    private final class OALinkedMapEntry implements Map.Entry<K, V> {
+
+        private int slot;
+
+        public OALinkedMapEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public K getKey() {
+            return (K) table[slot << 1];
+        }
+
+        @Override
+        public V getValue() {
+            return (V) table[(slot << 1) + 1];
+        }
+
+        @Override
+        public V setValue(V value) {
+            int valueIndex = (slot << 1) + 1;
+            V oldValue = (V) table[valueIndex];
+            table[valueIndex] = value;
+            return oldValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<K, V> that = (Map.Entry<K, V>) o;
+
+            return Objects.equals(getKey(), that.getKey()) && Objects.equals(getValue(), that.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
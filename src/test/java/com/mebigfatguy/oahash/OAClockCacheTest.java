@@ -0,0 +1,99 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.lang.reflect.Field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OAClockCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMaxSize() {
+        new OAClockCache<String, String>(0);
+    }
+
+    @Test
+    public void testCounts() {
+        OAClockCache<String, String> c = new OAClockCache<>(10);
+        c.put("a", "1");
+        c.put("b", "2");
+
+        Assert.assertEquals("1", c.get("a"));
+        Assert.assertEquals("2", c.get("b"));
+        Assert.assertNull(c.get("c"));
+
+        Assert.assertEquals(2, c.getHitCount());
+        Assert.assertEquals(1, c.getMissCount());
+        Assert.assertEquals(0, c.getEvictionCount());
+        Assert.assertEquals(2.0 / 3.0, c.getHitRate(), 0.0001);
+
+        c.resetCounts();
+        Assert.assertEquals(0, c.getHitCount());
+    }
+
+    @Test
+    public void testBoundedWithSecondChance() {
+        OAClockCache<Integer, Integer> c = new OAClockCache<>(100);
+        c.put(Integer.valueOf(-1), Integer.valueOf(-1));
+
+        for (int i = 0; i < 100000; i++) {
+            c.put(Integer.valueOf(i), Integer.valueOf(i));
+            Assert.assertTrue(c.size() <= 100);
+            Assert.assertEquals(Integer.valueOf(i), c.get(Integer.valueOf(i)));
+            Assert.assertEquals(Integer.valueOf(-1), c.get(Integer.valueOf(-1)));
+        }
+
+        Assert.assertEquals(100, c.size());
+        Assert.assertTrue(c.containsKey(Integer.valueOf(-1)));
+        Assert.assertTrue(c.getEvictionCount() >= (100000 - 100));
+    }
+
+    @Test
+    public void testCollidingStringKeys() throws Exception {
+        String[] keys = OAHashMapTest.collidingStrings(10);
+        OAClockCache<String, Integer> c = new OAClockCache<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            c.put(keys[i], Integer.valueOf(i));
+        }
+
+        Field strongHashKeys = OAClockCache.class.getDeclaredField("strongHashKeys");
+        strongHashKeys.setAccessible(true);
+        Assert.assertNotNull(strongHashKeys.get(c));
+        Assert.assertEquals(0, c.getEvictionCount());
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(Integer.valueOf(i), c.get(keys[i]));
+        }
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        OAClockCache<String, String> c = new OAClockCache<>(2);
+        c.put("a", "1");
+        c.put("b", "2");
+        Assert.assertEquals("1", c.remove("a"));
+        c.put("c", "3");
+        Assert.assertEquals(0, c.getEvictionCount());
+        Assert.assertEquals(2, c.size());
+
+        c.clear();
+        Assert.assertTrue(c.isEmpty());
+        Assert.assertNull(c.get("b"));
+    }
+}
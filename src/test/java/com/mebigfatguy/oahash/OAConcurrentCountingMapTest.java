@@ -0,0 +1,107 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OAConcurrentCountingMapTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testIncrementNull() {
+        OAConcurrentCountingMap<String> m = new OAConcurrentCountingMap<>();
+        m.increment(null);
+    }
+
+    @Test
+    public void testCounting() {
+        OAConcurrentCountingMap<String> m = new OAConcurrentCountingMap<>();
+
+        m.increment("test");
+        m.increment("test");
+        m.add("tube", 10);
+        m.decrement("tube");
+
+        Assert.assertEquals(2, m.size());
+        Assert.assertEquals(2, m.sum("test"));
+        Assert.assertEquals(9, m.sum("tube"));
+        Assert.assertEquals(0, m.sum("exam"));
+        Assert.assertFalse(m.containsKey("exam"));
+
+        Assert.assertEquals(9, m.sumThenReset("tube"));
+        Assert.assertEquals(0, m.sum("tube"));
+    }
+
+    @Test
+    public void testFillWithExpansion() {
+        OAConcurrentCountingMap<Integer> m = new OAConcurrentCountingMap<>();
+
+        for (int i = -500; i < 500; i++) {
+            m.add(Integer.valueOf(i), i);
+        }
+
+        Assert.assertEquals(1000, m.size());
+        for (int i = -500; i < 500; i++) {
+            Assert.assertEquals(i, m.sum(Integer.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        final OAConcurrentCountingMap<String> m = new OAConcurrentCountingMap<>(1);
+        final int threadCount = 8;
+        final int keyCount = 500;
+        final int rounds = 20;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int r = 0; r < rounds; r++) {
+                        for (int k = 0; k < keyCount; k++) {
+                            m.increment("key-" + k);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(keyCount, m.size());
+        Map<String, Long> snapshot = m.snapshot();
+        Assert.assertEquals(keyCount, snapshot.size());
+        for (int k = 0; k < keyCount; k++) {
+            Assert.assertEquals(Long.valueOf(threadCount * rounds), snapshot.get("key-" + k));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OAExpiringMapTest {
+
+    private long now = 1000;
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNullValue() {
+        new OAExpiringMap<String, String>(1, TimeUnit.SECONDS).put("test", null);
+    }
+
+    @Test
+    public void testLazyExpiry() {
+        OAExpiringMap<String, String> m = new OAExpiringMap<>(10, TimeUnit.NANOSECONDS, () -> now);
+        m.put("a", "1");
+        m.put("b", "2", 30, TimeUnit.NANOSECONDS);
+
+        now += 5;
+        Assert.assertEquals("1", m.get("a"));
+        Assert.assertEquals(5, m.getTimeToLive("a", TimeUnit.NANOSECONDS));
+
+        now += 5;
+        Assert.assertNull(m.get("a"));
+        Assert.assertFalse(m.containsKey("a"));
+        Assert.assertEquals(1, m.size());
+        Assert.assertEquals("2", m.get("b"));
+
+        Assert.assertNull(m.put("a", "3"));
+        Assert.assertEquals("3", m.get("a"));
+        now += 10;
+        Assert.assertEquals("{b=2}", m.toString());
+    }
+
+    @Test
+    public void testCollidingStringKeys() throws Exception {
+        String[] keys = OAHashMapTest.collidingStrings(10);
+        OAExpiringMap<String, Integer> m = new OAExpiringMap<>(10, TimeUnit.NANOSECONDS, () -> now);
+        for (int i = 0; i < keys.length; i++) {
+            m.put(keys[i], Integer.valueOf(i));
+        }
+
+        Field strongHashKeys = OAExpiringMap.class.getDeclaredField("strongHashKeys");
+        strongHashKeys.setAccessible(true);
+        Assert.assertNotNull(strongHashKeys.get(m));
+        Assert.assertEquals(keys.length, m.size());
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(keys[i]));
+        }
+    }
+
+    @Test
+    public void testPurgeExpired() {
+        OAExpiringMap<Integer, Integer> m = new OAExpiringMap<>(10, TimeUnit.NANOSECONDS, () -> now);
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        m.put(Integer.valueOf(-1), Integer.valueOf(-1), 100, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(1001, m.size());
+
+        now += 10;
+        int purged = 0;
+        int calls = 0;
+        int p;
+        while ((p = m.purgeExpired(64)) > 0 || (m.size() > 1)) {
+            purged += p;
+            Assert.assertTrue(p <= 64);
+            Assert.assertTrue(++calls < 1000);
+        }
+
+        Assert.assertEquals(1000, purged);
+        Assert.assertEquals(1, m.size());
+        Assert.assertEquals(Integer.valueOf(-1), m.get(Integer.valueOf(-1)));
+    }
+
+    @Test
+    public void testExpiredSlotsAreReused() {
+        OAExpiringMap<Integer, Integer> m = new OAExpiringMap<>(1, TimeUnit.NANOSECONDS, () -> now);
+        for (int i = 0; i < 100000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+            Assert.assertEquals(Integer.valueOf(i), m.get(Integer.valueOf(i)));
+            now++;
+        }
+
+        Assert.assertTrue(m.size() < 100);
+    }
+}
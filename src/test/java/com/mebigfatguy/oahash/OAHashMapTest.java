@@ -17,8 +17,21 @@
  */
 package com.mebigfatguy.oahash;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -140,6 +153,843 @@ public class OAHashMapTest {
         Assert.assertEquals(100, hcm.size());
     }
 
+    @Test
+    public void testSnapshotIsStable() {
+        OAHashMap<String, String> m = new OAHashMap<>();
+
+        for (int i = 0; i < 100; i++) {
+            String s = String.valueOf(i);
+            m.put(s, s);
+        }
+
+        Map<String, String> snap = m.snapshot();
+        m.put("0", "zero");
+        m.put("100", "100");
+        m.remove("1");
+
+        Assert.assertEquals(100, snap.size());
+        Assert.assertEquals("0", snap.get("0"));
+        Assert.assertEquals("1", snap.get("1"));
+        Assert.assertFalse(snap.containsKey("100"));
+        Assert.assertEquals("zero", m.get("0"));
+        Assert.assertFalse(m.containsKey("1"));
+
+        m.clear();
+        Assert.assertEquals(100, snap.size());
+        Assert.assertTrue(m.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsUnmodifiable() {
+        OAHashMap<String, String> m = new OAHashMap<>();
+        m.put("test", "tube");
+
+        m.snapshot().put("test", "exam");
+    }
+
+    @Test
+    public void testNegativeHashCodes() {
+        Map<Integer, Integer> m = new OAHashMap<>();
+
+        for (int i = -100; i < 0; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        Assert.assertEquals(100, m.size());
+        Assert.assertEquals(Integer.valueOf(-5), m.get(Integer.valueOf(-5)));
+    }
+
+    @Test
+    public void testComputeFamily() {
+        Map<String, Integer> m = new OAHashMap<>();
+
+        Assert.assertEquals(Integer.valueOf(1), m.computeIfAbsent("test", k -> 1));
+        Assert.assertEquals(Integer.valueOf(1), m.computeIfAbsent("test", k -> 2));
+        Assert.assertEquals(Integer.valueOf(3), m.computeIfPresent("test", (k, v) -> v + 2));
+        Assert.assertNull(m.computeIfPresent("tube", (k, v) -> 5));
+        Assert.assertFalse(m.containsKey("tube"));
+
+        Assert.assertEquals(Integer.valueOf(4), m.compute("test", (k, v) -> v + 1));
+        Assert.assertEquals(Integer.valueOf(7), m.compute("tube", (k, v) -> (v == null) ? 7 : v));
+        Assert.assertNull(m.compute("tube", (k, v) -> null));
+        Assert.assertFalse(m.containsKey("tube"));
+
+        for (int i = 0; i < 1000; i++) {
+            m.merge(String.valueOf(i % 10), 1, Integer::sum);
+        }
+        Assert.assertEquals(11, m.size());
+        Assert.assertEquals(Integer.valueOf(100), m.get("5"));
+        Assert.assertNull(m.merge("5", 1, (a, b) -> null));
+        Assert.assertFalse(m.containsKey("5"));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testComputeIfAbsentModifyingMap() {
+        final Map<String, Integer> m = new OAHashMap<>();
+
+        m.computeIfAbsent("test", k -> m.put("tube", 1));
+    }
+
+    @Test
+    public void testForEachReplaceAllAndRemoveIf() {
+        Map<String, Integer> m = new OAHashMap<>();
+
+        for (int i = 0; i < 100; i++) {
+            m.put(String.valueOf(i), Integer.valueOf(i));
+        }
+
+        final int[] sum = new int[1];
+        m.forEach((k, v) -> sum[0] += v.intValue());
+        Assert.assertEquals(4950, sum[0]);
+
+        m.replaceAll((k, v) -> Integer.valueOf(v.intValue() * 2));
+        Assert.assertEquals(Integer.valueOf(20), m.get("10"));
+
+        Assert.assertTrue(m.keySet().removeIf(k -> k.length() == 1));
+        Assert.assertEquals(90, m.size());
+        Assert.assertTrue(m.values().removeIf(v -> v.intValue() >= 100));
+        Assert.assertEquals(40, m.size());
+        Assert.assertTrue(m.entrySet().removeIf(e -> e.getKey().startsWith("1")));
+        Assert.assertEquals(30, m.size());
+        Assert.assertFalse(m.keySet().removeIf(k -> k.startsWith("1")));
+
+        sum[0] = 0;
+        m.values().forEach(v -> sum[0] += v.intValue());
+        Assert.assertEquals(2070, sum[0]);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testForEachModifyingMap() {
+        final Map<String, String> m = new OAHashMap<>();
+        m.put("test", "tube");
+
+        m.forEach((k, v) -> m.put("exam", v));
+    }
+
+    @Test
+    public void testParallelStreams() {
+        Map<Integer, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(-i));
+        }
+
+        Assert.assertNotNull(m.keySet().spliterator().trySplit());
+        Assert.assertEquals(49995000L, m.keySet().parallelStream().mapToLong(Integer::longValue).sum());
+        Assert.assertEquals(-49995000L, m.values().parallelStream().mapToLong(Integer::longValue).sum());
+        Assert.assertEquals(0L, m.entrySet().parallelStream().mapToLong(e -> e.getKey().longValue() + e.getValue().longValue()).sum());
+    }
+
+    @Test
+    public void testParallelBulkOperations() {
+        OAHashMap<Integer, Long> m = new OAHashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            m.put(Integer.valueOf(i), Long.valueOf(i));
+        }
+
+        final LongAdder sum = new LongAdder();
+        m.forEach(1, (k, v) -> sum.add(v.longValue()));
+        Assert.assertEquals(49995000L, sum.sum());
+
+        Assert.assertEquals(Long.valueOf(49995000L), m.reduceValues(1, Long::sum));
+        Assert.assertEquals(Integer.valueOf(9999), m.reduceKeys(1, Math::max));
+        Assert.assertEquals(Long.valueOf(10000L), m.reduce(100, (k, v) -> Long.valueOf(1), Long::sum));
+        Assert.assertEquals(Integer.valueOf(5000), m.search(1, (k, v) -> (v.longValue() == 5000) ? k : null));
+        Assert.assertNull(m.search(Long.MAX_VALUE, (k, v) -> (v.longValue() < 0) ? k : null));
+    }
+
+    @Test
+    public void testCursor() {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        int count = 0;
+        OAHashMap<Integer, Integer>.Cursor cursor = m.cursor();
+        while (cursor.advance()) {
+            count++;
+            if ((cursor.key().intValue() & 1) == 0) {
+                cursor.remove();
+            } else {
+                Assert.assertEquals(cursor.key(), cursor.setValue(Integer.valueOf(-cursor.value().intValue())));
+            }
+        }
+
+        Assert.assertEquals(100, count);
+        Assert.assertEquals(50, m.size());
+        Assert.assertNull(m.get(Integer.valueOf(10)));
+        Assert.assertEquals(Integer.valueOf(-11), m.get(Integer.valueOf(11)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCursorBeforeAdvance() {
+        OAHashMap<String, String> m = new OAHashMap<>();
+        m.put("test", "tube");
+
+        m.cursor().key();
+    }
+
+    @Test
+    public void testViewsAreReused() {
+        Map<String, String> m = new OAHashMap<>();
+
+        Assert.assertSame(m.keySet(), m.keySet());
+        Assert.assertSame(m.values(), m.values());
+        Assert.assertSame(m.entrySet(), m.entrySet());
+    }
+
+    @Test
+    public void testFlyweightEntries() {
+        OAHashMap<String, String> m = new OAHashMap<>();
+        m.setFlyweightEntries(true);
+        for (int i = 0; i < 10; i++) {
+            String s = String.valueOf(i);
+            m.put(s, s);
+        }
+
+        Iterator<Map.Entry<String, String>> it = m.entrySet().iterator();
+        Map.Entry<String, String> first = it.next();
+        Assert.assertEquals(first.getKey(), first.getValue());
+        Map.Entry<String, String> second = it.next();
+        Assert.assertSame(first, second);
+
+        for (Map.Entry<String, String> entry : m.entrySet()) {
+            entry.setValue(entry.getKey() + "!");
+        }
+        Assert.assertEquals("5!", m.get("5"));
+
+        Object[] entries = m.entrySet().toArray();
+        Assert.assertNotSame(entries[0], entries[1]);
+        Assert.assertEquals(new OAHashMap<>(m), m);
+    }
+
+    @Test
+    public void testToString() {
+        Map<String, String> m = new OAHashMap<>();
+        m.put("test", "tube");
+
+        Assert.assertEquals("{test=tube}", m.toString());
+        Assert.assertEquals("[test]", m.keySet().toString());
+        Assert.assertEquals("[tube]", m.values().toString());
+        Assert.assertEquals("[test=tube]", m.entrySet().toString());
+    }
+
+    @Test
+    public void testCopyAndPutAllFromOAHashMap() {
+        OAHashMap<String, String> src = new OAHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String s = String.valueOf(i);
+            src.put(s, s);
+        }
+        src.remove("50");
+
+        OAHashMap<String, String> copy = new OAHashMap<>(src);
+        Assert.assertEquals(src, copy);
+        copy.put("50", "50");
+        Assert.assertFalse(src.containsKey("50"));
+
+        OAHashMap<String, String> dest = new OAHashMap<>();
+        dest.putAll(src);
+        Assert.assertEquals(src, dest);
+
+        OAHashMap<String, String> overlay = new OAHashMap<>();
+        for (int i = 90; i < 150; i++) {
+            String s = String.valueOf(i);
+            overlay.put(s, "overlay");
+        }
+        dest.putAll(overlay);
+        Assert.assertEquals(149, dest.size());
+        Assert.assertEquals("overlay", dest.get("95"));
+        Assert.assertEquals("89", dest.get("89"));
+        Assert.assertEquals("99", src.get("99"));
+    }
+
+    @Test
+    public void testGetAll() {
+        OAHashMap<Integer, String> m = new OAHashMap<>();
+        for (int i = 0; i < 1000; i += 2) {
+            m.put(Integer.valueOf(i), String.valueOf(i));
+        }
+        m.remove(Integer.valueOf(10));
+
+        Integer[] keys = new Integer[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Integer.valueOf(i - 5);
+        }
+        String[] values = new String[keys.length];
+
+        Assert.assertEquals(47, m.getAll(keys, values));
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(m.get(keys[i]), values[i]);
+        }
+
+        Assert.assertFalse(m.containsAll(keys));
+        Assert.assertTrue(m.containsAll(new Integer[] { 0, 2, 998, 500, 4, 6, 8, 12, 14 }));
+        Assert.assertFalse(m.containsAll(new Integer[] { 0, 2, 998, 500, 4, 6, 8, 12, 10 }));
+    }
+
+    @Test
+    public void testBulkRemoval() {
+        Map<Integer, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i % 10));
+        }
+
+        Set<Integer> small = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            small.add(Integer.valueOf(i));
+        }
+        Assert.assertTrue(m.keySet().removeAll(small));
+        Assert.assertEquals(500, m.size());
+        Assert.assertFalse(m.keySet().removeAll(small));
+
+        Assert.assertTrue(m.values().removeAll(Collections.singleton(Integer.valueOf(0))));
+        Assert.assertEquals(450, m.size());
+        Assert.assertTrue(m.values().retainAll(Arrays.asList(1, 2)));
+        Assert.assertEquals(100, m.size());
+        Assert.assertTrue(m.keySet().retainAll(Arrays.asList(501, 502, 503, 600)));
+        Assert.assertEquals(2, m.size());
+
+        Assert.assertFalse(m.entrySet().remove(new AbstractMap.SimpleEntry<>(501, 2)));
+        Assert.assertFalse(m.entrySet().removeAll(Collections.singleton(new AbstractMap.SimpleEntry<>(501, 2))));
+        Assert.assertTrue(m.entrySet().removeAll(Collections.singleton(new AbstractMap.SimpleEntry<>(501, 1))));
+        Assert.assertEquals(Collections.singletonMap(502, 2), m);
+
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        Assert.assertEquals(1000, m.size());
+        Assert.assertEquals(Integer.valueOf(502), m.get(Integer.valueOf(502)));
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        Map<String, String> m = new OAHashMap<>();
+
+        Assert.assertNull(m.putIfAbsent("test", "tube"));
+        Assert.assertEquals("tube", m.putIfAbsent("test", "exam"));
+        Assert.assertEquals("tube", m.getOrDefault("test", "none"));
+        Assert.assertEquals("none", m.getOrDefault("exam", "none"));
+
+        Assert.assertFalse(m.replace("test", "exam", "quiz"));
+        Assert.assertTrue(m.replace("test", "tube", "quiz"));
+        Assert.assertEquals("quiz", m.replace("test", "exam"));
+        Assert.assertNull(m.replace("tube", "exam"));
+        Assert.assertFalse(m.containsKey("tube"));
+
+        Assert.assertFalse(m.remove("test", "quiz"));
+        Assert.assertTrue(m.remove("test", "exam"));
+        Assert.assertTrue(m.isEmpty());
+    }
+
+    @Test
+    public void testValueChangesDoNotInvalidateIterators() {
+        Map<String, String> m = new OAHashMap<>();
+        m.put("test", "tube");
+        m.put("exam", "quiz");
+
+        Iterator<String> it = m.keySet().iterator();
+        it.next();
+        m.put("test", "tube2");
+        m.putIfAbsent("exam", "quiz2");
+        m.replace("exam", "quiz3");
+        m.remove("missing");
+        Assert.assertTrue(it.hasNext());
+        it.next();
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testTrackedHashCode() {
+        OAHashMap<String, Integer> m = new OAHashMap<>();
+        m.setTrackHashCode(true);
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100; i++) {
+            m.put("k" + i, Integer.valueOf(i));
+            expected.put("k" + i, Integer.valueOf(i));
+        }
+        Assert.assertEquals(expected.hashCode(), m.hashCode());
+
+        m.put("k1", Integer.valueOf(-1));
+        m.remove("k2");
+        m.merge("k3", Integer.valueOf(10), Integer::sum);
+        m.computeIfAbsent("new", k -> null);
+        m.putIfAbsent("k4", null);
+        m.replaceAll((k, v) -> Integer.valueOf(v.intValue() * 2));
+        m.put("k5", null);
+        m.entrySet().iterator().next().setValue(Integer.valueOf(42));
+        m.keySet().remove("k6");
+
+        expected = new HashMap<>(m);
+        Assert.assertEquals(expected.hashCode(), m.hashCode());
+
+        m.clear();
+        Assert.assertEquals(0, m.hashCode());
+    }
+
+    @Test
+    public void testEqualsBetweenTables() {
+        OAHashMap<String, String> a = new OAHashMap<>();
+        OAHashMap<String, String> b = new OAHashMap<>(500);
+        a.setTrackHashCode(true);
+        b.setTrackHashCode(true);
+
+        for (int i = 0; i < 50; i++) {
+            a.put("k" + i, "v" + i);
+            b.put("k" + (49 - i), "v" + (49 - i));
+        }
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(b, a);
+
+        b.put("k7", "other");
+        Assert.assertNotEquals(a, b);
+
+        b.put("k7", "v7");
+        b.put("k7", null);
+        a.put("k7", null);
+        Assert.assertEquals(a, b);
+
+        a.setTrackHashCode(false);
+        b.remove("k8");
+        b.put("k8x", "v8");
+        Assert.assertNotEquals(a, b);
+    }
+
+    @Test
+    public void testIncrementalResize() {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        m.setIncrementalResize(true);
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+            expected.put(Integer.valueOf(i), Integer.valueOf(i));
+            if ((i % 7) == 0) {
+                Integer k = Integer.valueOf(i / 2);
+                Assert.assertEquals(expected.remove(k), m.remove(k));
+            }
+            if ((i % 1000) == 0) {
+                Assert.assertEquals(expected.get(Integer.valueOf(i / 3)), m.get(Integer.valueOf(i / 3)));
+            }
+        }
+
+        Assert.assertEquals(expected.size(), m.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(entry.getValue(), m.get(entry.getKey()));
+        }
+
+        m.put(Integer.valueOf(-1), Integer.valueOf(-1));
+        expected.put(Integer.valueOf(-1), Integer.valueOf(-1));
+        int count = 0;
+        for (Integer k : m.keySet()) {
+            Assert.assertTrue(expected.containsKey(k));
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+        Assert.assertEquals(expected, m);
+        Assert.assertEquals(m, expected);
+        Assert.assertEquals(expected, m.snapshot());
+
+        m.setIncrementalResize(false);
+        Assert.assertFalse(m.isIncrementalResize());
+        Assert.assertEquals(expected, new OAHashMap<>(m));
+    }
+
+    @Test
+    public void testComputeWithLookupsDuringIncrementalResize() throws Exception {
+        OAHashMap<Object, Object> m = new OAHashMap<>();
+        m.setIncrementalResize(true);
+
+        HashCollisionsButNotEqual[] colliders = new HashCollisionsButNotEqual[4];
+        for (int c = 0; c < colliders.length; c++) {
+            colliders[c] = new HashCollisionsButNotEqual();
+            m.put(colliders[c], Integer.valueOf(c));
+        }
+
+        Field oldTable = OAHashMap.class.getDeclaredField("oldTable");
+        oldTable.setAccessible(true);
+        int count = 0;
+        while (oldTable.get(m) == null) {
+            m.put(Integer.valueOf(count), Integer.valueOf(count));
+            count++;
+        }
+
+        // lookups in the function must leave the slot found for the new key before it was called free
+        HashCollisionsButNotEqual added = new HashCollisionsButNotEqual();
+        m.computeIfAbsent(added, k -> {
+            for (HashCollisionsButNotEqual collider : colliders) {
+                m.get(collider);
+            }
+            return "added";
+        });
+
+        Assert.assertEquals(count + colliders.length + 1, m.size());
+        Assert.assertEquals("added", m.get(added));
+        for (int c = 0; c < colliders.length; c++) {
+            Assert.assertEquals(Integer.valueOf(c), m.get(colliders[c]));
+        }
+    }
+
+    @Test
+    public void testIncrementalResizeMovesBoundedSlots() throws Exception {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        m.setIncrementalResize(true);
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        Field oldTable = OAHashMap.class.getDeclaredField("oldTable");
+        oldTable.setAccessible(true);
+        Field migrationIndex = OAHashMap.class.getDeclaredField("migrationIndex");
+        migrationIndex.setAccessible(true);
+        int count = 0;
+        while (oldTable.get(m) == null) {
+            m.put(Integer.valueOf(count), Integer.valueOf(count));
+            expected.put(Integer.valueOf(count), Integer.valueOf(count));
+            count++;
+        }
+
+        // reads and walks see every entry without moving any of them
+        int migrated = migrationIndex.getInt(m);
+        for (int i = 0; i < count; i += 97) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(Integer.valueOf(i)));
+            Assert.assertTrue(m.containsKey(Integer.valueOf(i)));
+        }
+        Assert.assertFalse(m.containsValue(Integer.valueOf(-1)));
+        Assert.assertEquals(expected, m);
+        Assert.assertEquals(expected.hashCode(), m.hashCode());
+        Assert.assertEquals(expected.toString().length(), m.toString().length());
+        Assert.assertEquals(count, m.keySet().size());
+        Assert.assertEquals(new HashSet<>(expected.keySet()), new HashSet<>(m.keySet()));
+        Assert.assertEquals(count, m.values().toArray().length);
+        Assert.assertEquals(count, m.entrySet().stream().count());
+        Assert.assertEquals(expected, m.snapshot());
+        Assert.assertEquals(migrated, migrationIndex.getInt(m));
+        Assert.assertNotNull(oldTable.get(m));
+
+        // each write moves at most MIGRATION_SLOTS key slots of the old table across
+        while (oldTable.get(m) != null) {
+            migrated = migrationIndex.getInt(m);
+            m.put(Integer.valueOf(count), Integer.valueOf(count));
+            expected.put(Integer.valueOf(count), Integer.valueOf(count));
+            count++;
+            Assert.assertTrue(migrationIndex.getInt(m) - migrated <= 64);
+        }
+
+        Assert.assertEquals(expected, m);
+    }
+
+    @Test
+    public void testShrinking() throws Exception {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        int grownLength = tableLength(m);
+
+        for (int i = 0; i < 9990; i++) {
+            m.remove(Integer.valueOf(i));
+        }
+        Assert.assertEquals(grownLength, tableLength(m));
+
+        m.trimToSize();
+        Assert.assertTrue(tableLength(m) < 40);
+        for (int i = 9990; i < 10000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(Integer.valueOf(i)));
+        }
+
+        m.setLowWaterMark(0.1);
+        for (int i = 0; i < 10000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        for (int i = 0; i < 9900; i++) {
+            m.remove(Integer.valueOf(i));
+        }
+        Assert.assertEquals(100, m.size());
+        Assert.assertTrue(tableLength(m) < (grownLength / 10));
+        for (int i = 9900; i < 10000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(Integer.valueOf(i)));
+        }
+
+        m.compact();
+        Assert.assertEquals(100, m.size());
+
+        int compactedLength = tableLength(m);
+        for (int i = 9900; i < 9995; i++) {
+            Assert.assertTrue(m.entrySet().remove(new AbstractMap.SimpleEntry<>(Integer.valueOf(i), Integer.valueOf(i))));
+        }
+        Assert.assertTrue(tableLength(m) < compactedLength);
+
+        m.clear();
+        Assert.assertEquals(0, tableLength(m));
+
+        m.put(Integer.valueOf(1), Integer.valueOf(1));
+        m.remove(Integer.valueOf(1));
+        m.trimToSize();
+        Assert.assertEquals(0, tableLength(m));
+        m.put(Integer.valueOf(2), Integer.valueOf(2));
+        Assert.assertEquals(Integer.valueOf(2), m.get(Integer.valueOf(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLowWaterMarkAboveHalfLoadFactor() {
+        new OAHashMap<String, String>().setLowWaterMark(0.5);
+    }
+
+    private static int tableLength(Object collection) throws Exception {
+        Field f = collection.getClass().getDeclaredField("table");
+        f.setAccessible(true);
+        return ((Object[]) f.get(collection)).length;
+    }
+
+    @Test
+    public void testGrowthPolicies() throws Exception {
+        OAHashMap<Integer, Integer> doubling = new OAHashMap<>(16);
+        doubling.setGrowthPolicy(GrowthPolicy.DOUBLING);
+        OAHashMap<Integer, Integer> exact = new OAHashMap<>(16);
+        exact.setGrowthPolicy(GrowthPolicy.EXACT);
+        OAHashMap<Integer, Integer> oneAndAHalf = new OAHashMap<>(16);
+        oneAndAHalf.setGrowthPolicy(GrowthPolicy.ONE_AND_A_HALF);
+
+        for (int i = 0; i < 1000; i++) {
+            doubling.put(Integer.valueOf(i), Integer.valueOf(i));
+            exact.put(Integer.valueOf(i), Integer.valueOf(i));
+            oneAndAHalf.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        int doublingSlots = tableLength(doubling) >> 1;
+        Assert.assertEquals(1, Integer.bitCount(doublingSlots));
+        Assert.assertEquals(GrowthPolicy.exactCapacity(1000, 0.70) << 1, tableLength(exact));
+        Assert.assertEquals(1000, oneAndAHalf.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), doubling.get(Integer.valueOf(i)));
+            Assert.assertEquals(Integer.valueOf(i), exact.get(Integer.valueOf(i)));
+            Assert.assertEquals(Integer.valueOf(i), oneAndAHalf.get(Integer.valueOf(i)));
+        }
+
+        Assert.assertSame(GrowthPolicy.EXACT, new OAHashMap<>(exact).getGrowthPolicy());
+    }
+
+    @Test
+    public void testWithExpectedSize() throws Exception {
+        OAHashMap<Integer, Integer> m = OAHashMap.withExpectedSize(100);
+        int length = tableLength(m);
+        for (int i = 0; i < 100; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        Assert.assertEquals(length, tableLength(m));
+    }
+
+    @Test
+    public void testLazyAndTinyTables() throws Exception {
+        OAHashMap<Object, Integer> m = new OAHashMap<>();
+        Assert.assertEquals(0, tableLength(m));
+        Assert.assertNull(m.get("missing"));
+
+        Object[] keys = new Object[8];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new UnhashableKey(i);
+            m.put(keys[i], Integer.valueOf(i));
+        }
+        Assert.assertEquals(16, tableLength(m));
+        m.remove(keys[3]);
+        m.put(keys[3], Integer.valueOf(-3));
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(Integer.valueOf((i == 3) ? -3 : i), m.get(new UnhashableKey(i)));
+        }
+
+        OAHashMap<Integer, Integer> h = new OAHashMap<>();
+        for (int i = 0; i < 9; i++) {
+            h.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        Assert.assertEquals(32, tableLength(h));
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals(Integer.valueOf(i), h.get(Integer.valueOf(i)));
+        }
+    }
+
+    static class UnhashableKey {
+        private final int id;
+
+        UnhashableKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            throw new UnsupportedOperationException("tiny tables must not hash");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof UnhashableKey) && (((UnhashableKey) o).id == id);
+        }
+    }
+
+    @Test
+    public void testClearOfSparseTable() throws Exception {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        int grownLength = tableLength(m);
+
+        m.clear();
+        Assert.assertEquals(grownLength, tableLength(m));
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                m.put(Integer.valueOf(i), Integer.valueOf(i));
+            }
+            m.clear();
+        }
+        Assert.assertTrue(tableLength(m) < 100);
+        Assert.assertTrue(m.isEmpty());
+
+        m.put(Integer.valueOf(1), Integer.valueOf(1));
+        Assert.assertEquals(Integer.valueOf(1), m.get(Integer.valueOf(1)));
+    }
+
+    @Test
+    public void testStats() {
+        OAHashMap<HashCollisionsButNotEqual, Integer> m = new OAHashMap<>(64);
+        HashCollisionsButNotEqual[] keys = new HashCollisionsButNotEqual[20];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new HashCollisionsButNotEqual();
+            m.put(keys[i], Integer.valueOf(i));
+        }
+
+        OAHashStats stats = m.stats();
+        Assert.assertEquals(64, stats.getCapacity());
+        Assert.assertEquals(20, stats.getSize());
+        Assert.assertEquals(20, stats.getMaxProbeLength());
+        Assert.assertEquals(10.5, stats.getAverageProbeLength(), 0.0001);
+        Assert.assertEquals(20, stats.getProbeLengthHistogram().length);
+        Assert.assertEquals(0, stats.getResizeCount());
+
+        for (int i = 0; i < 5; i++) {
+            m.remove(keys[i]);
+        }
+        stats = m.stats();
+        Assert.assertEquals(5, stats.getDeletedCount());
+        Assert.assertEquals(5.0 / 64, stats.getTombstoneRatio(), 0.0001);
+        Assert.assertEquals(15.0 / 64, stats.getLoad(), 0.0001);
+
+        m.compact();
+        stats = m.stats();
+        Assert.assertEquals(0, stats.getDeletedCount());
+        Assert.assertEquals(15, stats.getMaxProbeLength());
+        Assert.assertEquals(1, stats.getResizeCount());
+        Assert.assertTrue(stats.getLastResizeNanos() >= 0);
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        OAHashMap<String, String> m = new OAHashMap<>();
+        m.put("a", "1");
+
+        ObjectName name = m.registerMBean("testRegisterMBean");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Assert.assertEquals(Integer.valueOf(1), server.getAttribute(name, "Size"));
+            Assert.assertEquals(Integer.valueOf(1), server.getAttribute(name, "MaxProbeLength"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testCollidingStringKeys() {
+        String[] keys = collidingStrings(12);
+        Assert.assertEquals(keys[0].hashCode(), keys[keys.length - 1].hashCode());
+
+        OAHashMap<String, Integer> m = new OAHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            m.put(keys[i], Integer.valueOf(i));
+        }
+
+        Assert.assertEquals(keys.length, m.size());
+        Assert.assertTrue(m.stats().getMaxProbeLength() < 128);
+
+        Map<String, Integer> snapshot = m.snapshot();
+        OAHashMap<String, Integer> copy = new OAHashMap<>(m);
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(keys[i]));
+            Assert.assertEquals(Integer.valueOf(i), snapshot.get(keys[i]));
+            Assert.assertEquals(Integer.valueOf(i), copy.remove(keys[i]));
+        }
+        Assert.assertTrue(copy.isEmpty());
+    }
+
+    /**
+     * returns the 2^n strings made of n pairs of "Aa" or "BB", which all have the same hash code
+     */
+    static String[] collidingStrings(int n) {
+        String[] strings = new String[1 << n];
+        for (int i = 0; i < strings.length; i++) {
+            StringBuilder sb = new StringBuilder(n << 1);
+            for (int b = 0; b < n; b++) {
+                sb.append(((i & (1 << b)) == 0) ? "Aa" : "BB");
+            }
+            strings[i] = sb.toString();
+        }
+        return strings;
+    }
+
+    @Test
+    public void testBulkRemovalLeavesHeadroom() throws Exception {
+        OAHashMap<Integer, Integer> m = new OAHashMap<>();
+        Set<Integer> low = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+            if (i < 600) {
+                low.add(Integer.valueOf(i));
+            }
+        }
+
+        m.keySet().removeAll(low);
+        int compactedLength = tableLength(m);
+        for (int i = 0; i < 100; i++) {
+            m.put(Integer.valueOf(-1 - i), Integer.valueOf(i));
+        }
+        Assert.assertEquals(compactedLength, tableLength(m));
+    }
+
+    @Test
+    public void testBulkRemovalDropsTombstones() {
+        OAHashMap<Integer, Integer> m = OAHashMap.withExpectedSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            m.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        for (int i = 0; i < 300; i++) {
+            m.remove(Integer.valueOf(i));
+            m.put(Integer.valueOf(1000 + i), Integer.valueOf(i));
+        }
+        Assert.assertTrue(m.stats().getDeletedCount() > 0);
+
+        m.keySet().removeAll(Collections.singleton(Integer.valueOf(500)));
+        Assert.assertEquals(0, m.stats().getDeletedCount());
+        Assert.assertEquals(999, m.size());
+
+        m.keySet().removeIf(k -> k.intValue() < 400);
+        Assert.assertEquals(100, m.stats().getDeletedCount());
+        Assert.assertEquals(899, m.size());
+    }
+
+    @Test
+    public void testPutAllKeepsExpectedSize() throws Exception {
+        OAHashMap<Integer, Integer> source = new OAHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            source.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        OAHashMap<Integer, Integer> m = OAHashMap.withExpectedSize(1000);
+        int presizedLength = tableLength(m);
+        m.putAll(source);
+
+        Assert.assertEquals(presizedLength, tableLength(m));
+        Assert.assertEquals(source, m);
+    }
+
     static class HashCollisionsButNotEqual {
         @Override
         public int hashCode() {
@@ -17,9 +17,15 @@
  */
 package com.mebigfatguy.oahash;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -132,10 +138,433 @@ public class OAHashSetTest {
         Iterator<String> it = s.iterator();
         it = s.iterator();
         while (it.hasNext()) {
-            it.next();
+            String e = it.next();
             it.remove();
-            s.remove(String.valueOf(10));
+            // iteration order depends on the set's hash seed, so make sure a different element is removed
+            s.remove(e.equals("10") ? "11" : "10");
+        }
+    }
+
+    @Test
+    public void testForEachAndRemoveIf() {
+        Set<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        final int[] sum = new int[1];
+        s.forEach(i -> sum[0] += i.intValue());
+        Assert.assertEquals(4950, sum[0]);
+
+        Assert.assertTrue(s.removeIf(i -> (i.intValue() & 1) == 0));
+        Assert.assertEquals(50, s.size());
+        Assert.assertFalse(s.contains(Integer.valueOf(10)));
+        Assert.assertTrue(s.contains(Integer.valueOf(11)));
+        Assert.assertFalse(s.removeIf(i -> i.intValue() > 100));
+    }
+
+    @Test
+    public void testParallelStream() {
+        Set<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        Spliterator<Integer> spliterator = s.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL));
+        Assert.assertNotNull(spliterator.trySplit());
+
+        Assert.assertEquals(10000, s.parallelStream().count());
+        Assert.assertEquals(49995000L, s.parallelStream().mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    public void testParallelBulkOperations() {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        final LongAdder sum = new LongAdder();
+        s.forEach(1, i -> sum.add(i.longValue()));
+        Assert.assertEquals(49995000L, sum.sum());
+
+        Assert.assertEquals(Integer.valueOf(9999), s.reduce(1, Math::max));
+        Assert.assertEquals(Long.valueOf(49995000L), s.reduce(1, Integer::longValue, Long::sum));
+        Assert.assertEquals("5000", s.search(1, i -> (i.intValue() == 5000) ? i.toString() : null));
+        Assert.assertNull(s.search(Long.MAX_VALUE, i -> (i.intValue() < 0) ? i : null));
+    }
+
+    @Test
+    public void testCursor() {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        int count = 0;
+        OAHashSet<Integer>.Cursor cursor = s.cursor();
+        while (cursor.advance()) {
+            count++;
+            if ((cursor.element().intValue() & 1) == 0) {
+                cursor.remove();
+            }
+        }
+
+        Assert.assertEquals(100, count);
+        Assert.assertEquals(50, s.size());
+        Assert.assertFalse(s.contains(Integer.valueOf(10)));
+        Assert.assertTrue(s.contains(Integer.valueOf(11)));
+    }
+
+    @Test
+    public void testCopyAndAddAllFromOAHashSet() {
+        OAHashSet<Integer> src = new OAHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            src.add(Integer.valueOf(i));
+        }
+        src.remove(Integer.valueOf(50));
+
+        OAHashSet<Integer> copy = new OAHashSet<>(src);
+        Assert.assertEquals(src, copy);
+        copy.add(Integer.valueOf(50));
+        Assert.assertFalse(src.contains(Integer.valueOf(50)));
+
+        OAHashSet<Integer> dest = new OAHashSet<>();
+        Assert.assertTrue(dest.addAll(src));
+        Assert.assertEquals(src, dest);
+        Assert.assertFalse(dest.addAll(src));
+
+        OAHashSet<Integer> more = new OAHashSet<>();
+        for (int i = 90; i < 150; i++) {
+            more.add(Integer.valueOf(i));
+        }
+        Assert.assertTrue(dest.addAll(more));
+        Assert.assertEquals(149, dest.size());
+        Assert.assertEquals(99, src.size());
+    }
+
+    @Test
+    public void testContainsAllArray() {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 1000; i += 2) {
+            s.add(Integer.valueOf(i));
+        }
+
+        Assert.assertTrue(s.containsAll(new Integer[] { 0, 2, 998, 500, 4, 6, 8, 10, 12, 14 }));
+        Assert.assertFalse(s.containsAll(new Integer[] { 0, 2, 998, 500, 4, 6, 8, 10, 12, 13 }));
+        Assert.assertFalse(s.containsAll(new Integer[] { -2 }));
+        Assert.assertTrue(s.containsAll(new Integer[0]));
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        OAHashSet<Integer> evens = new OAHashSet<>();
+        OAHashSet<Integer> threes = new OAHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            if ((i % 2) == 0) {
+                evens.add(Integer.valueOf(i));
+            }
+            if ((i % 3) == 0) {
+                threes.add(Integer.valueOf(i));
+            }
+        }
+
+        Set<Integer> expected = new HashSet<>(evens);
+        expected.addAll(threes);
+        Assert.assertEquals(expected, OAHashSet.union(evens, threes));
+
+        expected = new HashSet<>(evens);
+        expected.retainAll(threes);
+        Assert.assertEquals(expected, OAHashSet.intersect(evens, threes));
+        Assert.assertEquals(expected, OAHashSet.intersect(threes, evens));
+        Assert.assertEquals(expected.size(), OAHashSet.intersectionSize(evens, threes));
+
+        expected = new HashSet<>(evens);
+        expected.removeAll(threes);
+        Assert.assertEquals(expected, OAHashSet.difference(evens, threes));
+
+        Assert.assertTrue(OAHashSet.intersect(evens, new OAHashSet<Integer>()).isEmpty());
+        Assert.assertEquals(evens, OAHashSet.union(new OAHashSet<Integer>(), evens));
+    }
+
+    @Test
+    public void testBulkRemoval() {
+        Set<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        Set<Integer> low = new HashSet<>();
+        for (int i = 0; i < 600; i++) {
+            low.add(Integer.valueOf(i));
+        }
+
+        Assert.assertTrue(s.removeAll(low));
+        Assert.assertEquals(400, s.size());
+        Assert.assertFalse(s.removeAll(low));
+        Assert.assertTrue(s.retainAll(Arrays.asList(600, 700, 800, 5)));
+        Assert.assertEquals(3, s.size());
+        Assert.assertFalse(s.retainAll(Arrays.asList(600, 700, 800)));
+
+        for (int i = 0; i < 1000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+        Assert.assertEquals(1000, s.size());
+    }
+
+    @Test
+    public void testTrackedHashCode() {
+        OAHashSet<String> s = new OAHashSet<>();
+        s.setTrackHashCode(true);
+
+        for (int i = 0; i < 100; i++) {
+            s.add("e" + i);
+        }
+        s.add("e1");
+        s.remove("e2");
+        s.removeIf(e -> e.endsWith("5"));
+        s.retainAll(new HashSet<>(Arrays.asList("e1", "e3", "e4", "e6")));
+        s.addAll(new OAHashSet<>("e70", "e71"));
+
+        Assert.assertEquals(new HashSet<>(s).hashCode(), s.hashCode());
+
+        OAHashSet<String> t = new OAHashSet<>();
+        t.setTrackHashCode(true);
+        t.addAll(s);
+        Assert.assertEquals(s.hashCode(), t.hashCode());
+        Assert.assertEquals(s, t);
+
+        t.remove("e1");
+        t.add("e100");
+        Assert.assertNotEquals(s, t);
+
+        s.clear();
+        Assert.assertEquals(0, s.hashCode());
+    }
+
+    @Test
+    public void testShrinking() throws Exception {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+        int grownLength = tableLength(s);
+
+        s.setLowWaterMark(0.1);
+        s.removeIf(i -> i.intValue() >= 100);
+        Assert.assertEquals(100, s.size());
+        Assert.assertTrue(tableLength(s) < (grownLength / 10));
+
+        for (int i = 0; i < 90; i++) {
+            s.remove(Integer.valueOf(i));
+        }
+        Assert.assertTrue(tableLength(s) < 100);
+
+        s.trimToSize();
+        Assert.assertEquals(10, s.size());
+        for (int i = 90; i < 100; i++) {
+            Assert.assertTrue(s.contains(Integer.valueOf(i)));
+        }
+
+        s.compact();
+        Assert.assertEquals(10, s.size());
+
+        s.removeIf(i -> true);
+        s.trimToSize();
+        Assert.assertEquals(0, tableLength(s));
+        Assert.assertTrue(s.add(Integer.valueOf(1)));
+        Assert.assertTrue(s.contains(Integer.valueOf(1)));
+    }
+
+    private static int tableLength(OAHashSet<?> s) throws Exception {
+        Field f = OAHashSet.class.getDeclaredField("table");
+        f.setAccessible(true);
+        return ((Object[]) f.get(s)).length;
+    }
+
+    @Test
+    public void testGrowthPolicies() throws Exception {
+        OAHashSet<Integer> doubling = new OAHashSet<>(16);
+        doubling.setGrowthPolicy(GrowthPolicy.DOUBLING);
+        OAHashSet<Integer> exact = new OAHashSet<>(16);
+        exact.setGrowthPolicy(GrowthPolicy.EXACT);
+
+        for (int i = 0; i < 1000; i++) {
+            doubling.add(Integer.valueOf(i));
+            exact.add(Integer.valueOf(i));
+        }
+
+        Assert.assertEquals(1, Integer.bitCount(tableLength(doubling)));
+        Assert.assertEquals(GrowthPolicy.exactCapacity(1000, 0.70), tableLength(exact));
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(doubling.contains(Integer.valueOf(i)));
+            Assert.assertTrue(exact.contains(Integer.valueOf(i)));
+        }
+
+        Assert.assertEquals(1 << 30, GrowthPolicy.DOUBLING.nextCapacity(1 << 29, 0, 0.70));
+        Assert.assertEquals(1 << 30, GrowthPolicy.DOUBLING.nextCapacity((1 << 29) + 1, 0, 0.70));
+        Assert.assertEquals(1 << 30, GrowthPolicy.DOUBLING.nextCapacity(Integer.MAX_VALUE, 0, 0.70));
+    }
+
+    @Test
+    public void testExpectedSizeConstruction() throws Exception {
+        OAHashSet<String> s = new OAHashSet<>("a", "b", "c", "d", "e", "f", "g", "h");
+        Assert.assertEquals(GrowthPolicy.exactCapacity(8, 0.70), tableLength(s));
+
+        OAHashSet<Integer> e = OAHashSet.withExpectedSize(100);
+        int length = tableLength(e);
+        for (int i = 0; i < 100; i++) {
+            e.add(Integer.valueOf(i));
+        }
+        Assert.assertEquals(length, tableLength(e));
+    }
+
+    @Test
+    public void testLazyAndTinyTables() throws Exception {
+        OAHashSet<String> s = new OAHashSet<>();
+        Assert.assertEquals(0, tableLength(s));
+        Assert.assertFalse(s.contains("a"));
+
+        for (int i = 0; i < 8; i++) {
+            s.add(String.valueOf(i));
+        }
+        Assert.assertEquals(8, tableLength(s));
+
+        s.add("8");
+        Assert.assertEquals(16, tableLength(s));
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(s.contains(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testClearOfSparseTable() throws Exception {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+        int grownLength = tableLength(s);
+
+        s.clear();
+        Assert.assertEquals(grownLength, tableLength(s));
+
+        for (int i = 0; i < 10; i++) {
+            s.add(Integer.valueOf(i));
+        }
+        s.remove(Integer.valueOf(0));
+        s.clear();
+        Assert.assertTrue(tableLength(s) < 100);
+        Assert.assertTrue(s.isEmpty());
+    }
+
+    @Test
+    public void testStats() {
+        OAHashSet<HashCollisionsButNotEqual> s = new OAHashSet<>(64);
+        HashCollisionsButNotEqual[] elements = new HashCollisionsButNotEqual[20];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new HashCollisionsButNotEqual();
+            s.add(elements[i]);
+        }
+        s.remove(elements[0]);
+
+        OAHashStats stats = s.stats();
+        Assert.assertEquals(64, stats.getCapacity());
+        Assert.assertEquals(19, stats.getSize());
+        Assert.assertEquals(1, stats.getDeletedCount());
+        Assert.assertEquals(20, stats.getMaxProbeLength());
+        Assert.assertEquals(0, stats.getResizeCount());
+
+        s.trimToSize();
+        Assert.assertEquals(1, s.stats().getResizeCount());
+        Assert.assertEquals(19, s.stats().getMaxProbeLength());
+    }
+
+    @Test
+    public void testCollidingStringElements() {
+        String[] elements = OAHashMapTest.collidingStrings(12);
+
+        OAHashSet<String> s = new OAHashSet<>();
+        for (String element : elements) {
+            s.add(element);
+        }
+
+        Assert.assertEquals(elements.length, s.size());
+        Assert.assertTrue(s.stats().getMaxProbeLength() < 128);
+
+        OAHashSet<String> copy = new OAHashSet<>(s);
+        for (String element : elements) {
+            Assert.assertTrue(s.contains(element));
+            Assert.assertTrue(copy.remove(element));
+        }
+        Assert.assertTrue(copy.isEmpty());
+    }
+
+    @Test
+    public void testBulkRemovalLeavesHeadroom() throws Exception {
+        OAHashSet<Integer> s = new OAHashSet<>();
+        Set<Integer> low = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            s.add(Integer.valueOf(i));
+            if (i < 600) {
+                low.add(Integer.valueOf(i));
+            }
+        }
+
+        s.removeAll(low);
+        int compactedLength = tableLength(s);
+        for (int i = 0; i < 100; i++) {
+            s.add(Integer.valueOf(-1 - i));
         }
+        Assert.assertEquals(compactedLength, tableLength(s));
+    }
+
+    @Test
+    public void testBulkRemovalDropsTombstones() {
+        OAHashSet<Integer> s = OAHashSet.withExpectedSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            s.add(Integer.valueOf(i));
+        }
+        for (int i = 0; i < 300; i++) {
+            s.remove(Integer.valueOf(i));
+            s.add(Integer.valueOf(1000 + i));
+        }
+        Assert.assertTrue(s.stats().getDeletedCount() > 0);
+
+        s.removeAll(Collections.singleton(Integer.valueOf(500)));
+        Assert.assertEquals(0, s.stats().getDeletedCount());
+        Assert.assertEquals(999, s.size());
+
+        s.removeIf(e -> e.intValue() < 400);
+        Assert.assertEquals(100, s.stats().getDeletedCount());
+        Assert.assertEquals(899, s.size());
+    }
+
+    @Test
+    public void testAddAllKeepsExpectedSize() throws Exception {
+        OAHashSet<Integer> source = new OAHashSet<>();
+        for (int i = 0; i < 20; i++) {
+            source.add(Integer.valueOf(i));
+        }
+
+        OAHashSet<Integer> s = OAHashSet.withExpectedSize(1000);
+        int presizedLength = tableLength(s);
+        s.addAll(source);
+
+        Assert.assertEquals(presizedLength, tableLength(s));
+        Assert.assertEquals(source, s);
+    }
+
+    @Test
+    public void testNegativeHashCodes() {
+        Set<Integer> s = new OAHashSet<>();
+
+        for (int i = -100; i < 0; i++) {
+            s.add(Integer.valueOf(i));
+        }
+
+        Assert.assertEquals(100, s.size());
+        Assert.assertTrue(s.contains(Integer.valueOf(-5)));
     }
 
     static class HashCollisionsButNotEqual {
@@ -0,0 +1,147 @@
+/*
+ * oahash - An open addressing hash implementation for Maps and Sets
+ * Copyright 2016-2019 MeBigFatGuy.com
+ * Copyright 2016-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.oahash;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OALinkedHashMapTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNullKey() {
+        new OALinkedHashMap<String, String>().put(null, "test");
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        OALinkedHashMap<String, Integer> m = new OALinkedHashMap<>();
+        for (int i = 99; i >= 0; i--) {
+            m.put("k" + i, Integer.valueOf(i));
+        }
+        m.remove("k50");
+        m.put("k98", Integer.valueOf(-98));
+        m.put("k50", Integer.valueOf(50));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 99; i >= 0; i--) {
+            if (i != 50) {
+                expected.add("k" + i);
+            }
+        }
+        expected.add("k50");
+
+        Assert.assertEquals(expected, new ArrayList<>(m.keySet()));
+        Assert.assertEquals(Integer.valueOf(-98), m.get("k98"));
+        Assert.assertEquals(100, m.size());
+    }
+
+    @Test
+    public void testAccessOrder() {
+        OALinkedHashMap<String, String> m = new OALinkedHashMap<>(16, 0.70, true);
+        m.put("a", "1");
+        m.put("b", "2");
+        m.put("c", "3");
+
+        m.get("a");
+        m.put("b", "22");
+
+        Assert.assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<>(m.keySet()));
+        Assert.assertEquals("{c=3, a=1, b=22}", m.toString());
+    }
+
+    @Test
+    public void testLRUEviction() {
+        OALinkedHashMap<Integer, Integer> cache = new OALinkedHashMap<Integer, Integer>(4, 0.70, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > 3;
+            }
+        };
+
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<Integer, Integer>(4, 0.70f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > 3;
+            }
+        };
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Integer.valueOf(i % 7), Integer.valueOf(i));
+            expected.put(Integer.valueOf(i % 7), Integer.valueOf(i));
+            Assert.assertEquals(expected.get(Integer.valueOf(i % 5)), cache.get(Integer.valueOf(i % 5)));
+        }
+
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(cache.entrySet()));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        OALinkedHashMap<String, String> m = new OALinkedHashMap<>();
+        m.put("a", "1");
+        m.put("b", "2");
+        m.put("c", "3");
+
+        Iterator<Map.Entry<String, String>> it = m.entrySet().iterator();
+        it.next();
+        it.next();
+        it.remove();
+
+        Assert.assertEquals(Arrays.asList("a", "c"), new ArrayList<>(m.keySet()));
+        Assert.assertFalse(m.containsKey("b"));
+    }
+
+    @Test
+    public void testCollidingStringKeys() throws Exception {
+        String[] keys = OAHashMapTest.collidingStrings(10);
+        OALinkedHashMap<String, Integer> m = new OALinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            m.put(keys[i], Integer.valueOf(i));
+        }
+
+        Field strongHashKeys = OALinkedHashMap.class.getDeclaredField("strongHashKeys");
+        strongHashKeys.setAccessible(true);
+        Assert.assertNotNull(strongHashKeys.get(m));
+        Assert.assertEquals(Arrays.asList(keys), new ArrayList<>(m.keySet()));
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(Integer.valueOf(i), m.get(keys[i]));
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testCMEOnAccessWhileIterating() {
+        OALinkedHashMap<String, String> m = new OALinkedHashMap<>(16, 0.70, true);
+        m.put("a", "1");
+        m.put("b", "2");
+
+        for (String k : m.keySet()) {
+            m.get(k);
+        }
+    }
+}